@@ -0,0 +1,80 @@
+package benchmark;
+
+import model.MazeAlgorithm;
+import model.SearchMode;
+import model.Vector2;
+import org.openjdk.jmh.annotations.*;
+import util.AStar;
+import util.MazeGenerator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AStar#calcPath()} from one corner of a square grid to the opposite one. The grid is set up once per
+ * trial, every invocation runs a complete search on it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AStarBenchmark {
+
+    /**
+     * Share of the nodes set as blocks on random grids
+     */
+    private static final double BLOCK_DENSITY = 0.2;
+    private static final long SEED = 42;
+
+    public enum GridType {
+        EMPTY,
+        RANDOM,
+        MAZE
+    }
+
+    @Param({"100", "500", "1000", "2000", "4000"})
+    private int size;
+
+    @Param({"EMPTY", "RANDOM", "MAZE"})
+    private GridType gridType;
+
+    @Param({"true", "false"})
+    private boolean allowDiagonal;
+
+    @Param({"ASTAR", "JPS", "JPS_PLUS", "BIDIRECTIONAL", "HIERARCHICAL"})
+    private SearchMode searchMode;
+
+    private AStar astar;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // maze cells lie on odd coordinates and the last row and column are walls
+        int last = size % 2 == 0 ? size - 3 : size - 2;
+        astar = new AStar(size, size, new Vector2(1, 1), new Vector2(last, last));
+        astar.setAllowDiagonal(allowDiagonal);
+        astar.setSearchMode(searchMode);
+
+        switch (gridType) {
+            case RANDOM:
+                astar.setRandomBlocks((int) (size * size * BLOCK_DENSITY), new Random(SEED));
+                break;
+            case MAZE:
+                astar.setBlocks(new MazeGenerator(new Vector2(size, size))
+                        .generate(MazeAlgorithm.RECURSIVE_BACKTRACKER, SEED));
+                break;
+            default:
+                break;
+        }
+
+        // builds the JPS+ jump table, so only the search itself is measured
+        astar.calcPath();
+    }
+
+    @Benchmark
+    public int calcPath() {
+        astar.calcPath();
+        return astar.getTotalCost();
+    }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import model.GridSnapshot;
+import model.PathQuery;
+import model.PathResult;
+import model.SearchMode;
+import model.Vector2;
+import org.openjdk.jmh.annotations.*;
+import util.AStar;
+import util.BatchPathFinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link BatchPathFinder#findPaths(List, ForkJoinPool)} on a random grid with a growing
+ * amount of threads. Every invocation answers the same batch of random queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BatchPathFinderBenchmark {
+
+    private static final double BLOCK_DENSITY = 0.2;
+    private static final long SEED = 42;
+    private static final int QUERIES = 1000;
+
+    @Param({"500", "1000"})
+    private int size;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    @Param({"ASTAR", "JPS_PLUS"})
+    private SearchMode searchMode;
+
+    private BatchPathFinder finder;
+    private List<PathQuery> queries;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AStar astar = new AStar(size, size, null, null);
+        Random random = new Random(SEED);
+        astar.setRandomBlocks((int) (size * size * BLOCK_DENSITY), random);
+        GridSnapshot grid = astar.getObstacleMap().snapshot();
+
+        queries = new ArrayList<>(QUERIES);
+        while (queries.size() < QUERIES) {
+            Vector2 from = new Vector2(random.nextInt(size), random.nextInt(size));
+            Vector2 to = new Vector2(random.nextInt(size), random.nextInt(size));
+            if (grid.isWalkable(from.getX(), from.getY()) && grid.isWalkable(to.getX(), to.getY())) {
+                queries.add(new PathQuery(from, to));
+            }
+        }
+
+        finder = new BatchPathFinder(grid);
+        finder.setSearchMode(searchMode);
+        pool = new ForkJoinPool(threads);
+        // creates the search states and jump tables, so only the searches are measured
+        finder.findPaths(queries, pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * @return the results, so the searches aren't optimized away
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public List<PathResult> findPaths() {
+        return finder.findPaths(queries, pool);
+    }
+}
@@ -0,0 +1,41 @@
+package benchmark;
+
+import model.MazeAlgorithm;
+import model.ObstacleMap;
+import model.Vector2;
+import org.openjdk.jmh.annotations.*;
+import util.MazeGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time of {@link MazeGenerator#generate(MazeAlgorithm, long)} for square mazes of every algorithm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MazeGeneratorBenchmark {
+
+    @Param({"101", "501", "1001", "2001", "10001"})
+    private int size;
+
+    @Param({"RECURSIVE_BACKTRACKER", "KRUSKAL", "PRIM", "WILSON", "RECURSIVE_DIVISION"})
+    private MazeAlgorithm algorithm;
+
+    private MazeGenerator generator;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new MazeGenerator(new Vector2(size, size));
+    }
+
+    @Benchmark
+    public ObstacleMap generate() {
+        // a new seed per maze, so the random walks of Wilson's algorithm don't favour a single maze
+        return generator.generate(algorithm, seed++);
+    }
+}
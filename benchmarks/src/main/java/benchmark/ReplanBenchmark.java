@@ -0,0 +1,62 @@
+package benchmark;
+
+import model.AstarNode;
+import model.SearchMode;
+import model.Vector2;
+import org.openjdk.jmh.annotations.*;
+import util.AStar;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replanning after a small local change: every invocation blocks the middle node of the current path,
+ * searches again, unblocks the node and searches again. Incremental search modes only repair the affected part of
+ * their search tree, the others search the whole grid again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@OperationsPerInvocation(2)
+public class ReplanBenchmark {
+
+    private static final double BLOCK_DENSITY = 0.2;
+    private static final long SEED = 42;
+
+    @Param({"500", "1000", "2000"})
+    private int size;
+
+    @Param({"ASTAR", "INCREMENTAL"})
+    private SearchMode searchMode;
+
+    private AStar astar;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        astar = new AStar(size, size, new Vector2(0, 0), new Vector2(size - 1, size - 1));
+        astar.setSearchMode(searchMode);
+        astar.setRandomBlocks((int) (size * size * BLOCK_DENSITY), new Random(SEED));
+        astar.calcPath();
+        if (astar.getPath().isEmpty()) {
+            throw new IllegalStateException("No path on the benchmark grid");
+        }
+    }
+
+    @Benchmark
+    public int replan() {
+        List<AstarNode> path = astar.getPath();
+        Vector2 middle = path.get(path.size() / 2).getPos();
+
+        astar.setBlock(middle, true);
+        astar.calcPath();
+        int cost = astar.getTotalCost();
+
+        astar.setBlock(middle, false);
+        astar.calcPath();
+        return cost + astar.getTotalCost();
+    }
+}
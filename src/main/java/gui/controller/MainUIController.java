@@ -1,25 +1,26 @@
 package gui.controller;
 
-import gui.uiparts.NodeUI;
+import gui.uiparts.GridCanvas;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.geometry.HPos;
-import javafx.geometry.VPos;
 import javafx.scene.control.*;
-import javafx.scene.layout.*;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.paint.Color;
+import model.GridSnapshot;
+import model.MazeAlgorithm;
 import model.NodeType;
+import model.ObstacleMap;
+import model.SearchMode;
 import model.Vector2;
 import util.AStar;
+import util.FlightEvents;
 import util.MazeGenerator;
+import util.SearchTrace;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.SplittableRandom;
 
 //TODO more styling
 //TODO add different theme with color transition based on h cost
@@ -29,7 +30,17 @@ import java.util.concurrent.TimeUnit;
 public class MainUIController {
     final private int DEF_GRID_HEIGHT = 90;
     final private int DEF_GRID_WIDTH = 160;
+    final private int MAX_GRID_SIZE = 2000;
+    /**
+     * Steps shown per frame at the highest playback speed
+     */
+    final private double MAX_STEPS_PER_FRAME = 100_000;
     private AStar astar;
+    /**
+     * Events of the last search, reused by the next search as long as the grid size doesn't change
+     */
+    private SearchTrace trace;
+    private final PlaybackController playback = new PlaybackController(this);
     @FXML
     private AnchorPane rootPane;
     @FXML
@@ -41,6 +52,8 @@ public class MainUIController {
     @FXML
     private Slider sldrSpeed;
     @FXML
+    private Slider sldrProgress;
+    @FXML
     private Spinner spnrGridWidth;
     @FXML
     private Spinner spnrGridHeight;
@@ -48,17 +61,30 @@ public class MainUIController {
     private CheckBox chkboxAllowDiagonals;
     @FXML
     private CheckBox chkboxGradientColor;
+    @FXML
+    private Label lblStats;
+    @FXML
+    private ComboBox<SearchMode> cmbSearchMode;
+    @FXML
+    private ComboBox<MazeAlgorithm> cmbMazeAlgorithm;
 
     private int gridWidth;
     private int gridHeight;
-    private GridPane astarGridPane;
+    private GridCanvas gridCanvas;
+    /**
+     * Cell the mouse has last been pressed or dragged on
+     */
+    private int lastMouseCell = -1;
     private boolean astarRunning;
     private boolean settingStart;
     private boolean settingDestination;
     private boolean settingBlock;
     private Thread astarThread;
-    private boolean astarThreadSleeping;
-    private CountDownLatch astarWaitForPlay;
+    /**
+     * Start and destination node of the shown search, they keep their color during the playback
+     */
+    private int shownFrom = -1;
+    private int shownTo = -1;
     private boolean startSet;
     private boolean destinationSet;
 
@@ -72,176 +98,176 @@ public class MainUIController {
 
     @FXML
     public void initialize() {
-        spnrGridHeight.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(10, 200));
-        spnrGridWidth.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(10, 200));
+        spnrGridHeight.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(10, MAX_GRID_SIZE));
+        spnrGridWidth.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(10, MAX_GRID_SIZE));
+        cmbSearchMode.getItems().setAll(SearchMode.values());
+        cmbSearchMode.setValue(SearchMode.ASTAR);
+        cmbMazeAlgorithm.getItems().setAll(MazeAlgorithm.values());
+        cmbMazeAlgorithm.setValue(MazeAlgorithm.RECURSIVE_BACKTRACKER);
         ToggleGroup group = new ToggleGroup();
         btnSetStart.setToggleGroup(group);
         btnSetDestination.setToggleGroup(group);
         btnEditBlocks.setToggleGroup(group);
         setGridSize(gridHeight, gridWidth);
+
+        sldrProgress.valueProperty().addListener((observable, oldValue, value) -> {
+            // the slider follows the playback, only moves made by the user seek
+            if (sldrProgress.isValueChanging() || sldrProgress.isPressed()) {
+                playback.seek(value.intValue());
+            }
+        });
+
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                FlightEvents.Frame event = new FlightEvents.Frame();
+                event.begin();
+                // the phases are only timed while the event is recorded
+                long start = event.isEnabled() ? System.nanoTime() : 0;
+                int position = playback.getPosition();
+                playback.setStepsPerFrame(getStepsPerFrame());
+                playback.onFrame();
+                if (!sldrProgress.isValueChanging() && !sldrProgress.isPressed()) {
+                    sldrProgress.setMax(Math.max(1, playback.getStepCount()));
+                    sldrProgress.setValue(playback.getPosition());
+                }
+                long applied = event.isEnabled() ? System.nanoTime() : 0;
+                gridCanvas.repaint();
+
+                event.end();
+                if (event.shouldCommit()) {
+                    event.steps = playback.getPosition() - position;
+                    event.applyDuration = applied - start;
+                    event.repaintDuration = System.nanoTime() - applied;
+                    event.commit();
+                }
+            }
+        }.start();
     }
 
     public void setGridSize(int height, int width) {
-        this.astar = new AStar(height, width, null, null, this);
-        //remove the gridpane only to re-render it with the correct size
-        rootPane.getChildren().removeIf(n -> n instanceof GridPane);
+        FlightEvents.GridRebuild event = new FlightEvents.GridRebuild();
+        event.begin();
+        // the search state can be reused as long as the size doesn't change
+        boolean reused = astar != null && astar.getNodeStore().getHeight() == height
+                && astar.getNodeStore().getWidth() == width;
+        if (reused) {
+            astar.reset();
+        } else {
+            this.astar = new AStar(height, width, null, null);
+        }
         gridWidth = width;
         gridHeight = height;
-        GridPane astarGrid = new GridPane();
-        astarGridPane = astarGrid;
-        initGrid(astarGrid);
-        int totalNodeAmount = height * width;
-
-        System.out.println("Setting up: Grid Nodes");
-        astarGrid.getChildren().addAll(createGridNodes(totalNodeAmount));
-
-        //constraints set, so that each row and column is of the same width and height
-        ColumnConstraints cc = new ColumnConstraints();
-        cc.setHgrow(Priority.ALWAYS);
-        cc.setPercentWidth(100);
-        cc.setFillWidth(true);
-        cc.setMinWidth(0);
-
-        RowConstraints rc = new RowConstraints();
-        rc.setVgrow(Priority.ALWAYS);
-        rc.setPercentHeight(100);
-        rc.setFillHeight(true);
-        rc.setMinHeight(0);
-
-        System.out.println("Setting up: Grid Constraints");
-
-        for (int i = 0; i < gridHeight; i++) {
-            astarGrid.getRowConstraints().add(rc);
-        }
 
-        for(int i = 0; i < gridWidth; i++) {
-            astarGrid.getColumnConstraints().add(cc);
+        if (gridCanvas == null) {
+            gridCanvas = new GridCanvas(height, width);
+            gridCanvas.addEventHandler(MouseEvent.MOUSE_PRESSED, this::onGridMouse);
+            gridCanvas.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onGridMouse);
+
+            //grid "anchored" to the origin as the grid needs to be stretched properly when the windows gets resized
+            AnchorPane.setTopAnchor(gridCanvas, 0d);
+            AnchorPane.setLeftAnchor(gridCanvas, 0d);
+            AnchorPane.setRightAnchor(gridCanvas, 0d);
+            AnchorPane.setBottomAnchor(gridCanvas, 40d);
+            rootPane.getChildren().add(gridCanvas);
+            // the stats are shown on top of the grid
+            lblStats.toFront();
+        } else {
+            gridCanvas.setGridSize(height, width);
         }
 
-
-        for (int i = 0; i < gridHeight; i++) {
-            for (int j = 0; j < gridWidth; j++) {
-                GridPane.setColumnIndex(getNodeUI(new Vector2(j, i)), j);
-                GridPane.setRowIndex(getNodeUI(new Vector2(j, i)) , i);
-            }
+        event.end();
+        if (event.shouldCommit()) {
+            event.width = width;
+            event.height = height;
+            event.reused = reused;
+            event.commit();
         }
-
-        //astarGrid.setGridLinesVisible(true);
-        System.out.printf("Total amount of Nodes: %d", astarGrid.getChildren().size());
-
-        //grid "anchored" to the origin as the grid needs to be stretched properly when the windows gets resized
-        AnchorPane.setTopAnchor(astarGrid, 0d);
-        AnchorPane.setLeftAnchor(astarGrid, 0d);
-        AnchorPane.setRightAnchor(astarGrid, 0d);
-        AnchorPane.setBottomAnchor(astarGrid, 40d);
-        rootPane.getChildren().add(astarGrid);
-    }
-
-    private void initGrid(GridPane grid) {
-        grid.maxHeight(Double.POSITIVE_INFINITY);
-        grid.maxWidth(Double.POSITIVE_INFINITY);
-        grid.minHeight(200);
-        grid.minWidth(200);
+        System.out.printf("Total amount of Nodes: %d%n", height * width);
     }
 
-    private List<NodeUI> createGridNodes(int amount) {
-
-        ExecutorService threadPool = Executors.newFixedThreadPool(20);
-
-        final List<NodeUI> syncList = Collections.synchronizedList(new ArrayList<>(amount));
-
-        for (int i = 0; i < amount; i++) {
-            if (i % gridHeight == 0) System.out.printf("Setting up: Row %d\n", i / gridHeight);
-            threadPool.execute(() -> {
-                NodeUI nodeUI = new NodeUI(this);
-                GridPane.setHalignment(nodeUI, HPos.CENTER);
-                GridPane.setValignment(nodeUI, VPos.CENTER);
-                syncList.add(nodeUI);
-            });
+    /**
+     * Handles clicks and drags on the grid, a drag applies the current edit mode to every cell it passes
+     */
+    private void onGridMouse(MouseEvent e) {
+        int id = gridCanvas.cellAt(e.getX(), e.getY());
+        if (id < 0 || (e.getEventType() == MouseEvent.MOUSE_DRAGGED && id == lastMouseCell)) {
+            return;
         }
-
-        try {
-            threadPool.shutdown();
-            threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        lastMouseCell = id;
+
+        // blocks can be edited while a search runs, as it searches the snapshot it started on
+        if (astarRunning && !settingBlock) return;
+
+        if (settingStart) {
+            setStart(id);
+        } else if (settingDestination) {
+            setDestination(id);
+        } else if (settingBlock) {
+            if (e.getButton() == MouseButton.PRIMARY) {
+                setBlock(id, true);
+            } else if (e.getButton() == MouseButton.SECONDARY) {
+                setBlock(id, false);
+            }
         }
-
-        return syncList;
     }
 
-    public void updateAstarGrid() {
-        Platform.runLater(() -> {
-            astar.getOpenList().forEach(n -> {
-
-                NodeUIController nodeUI = getNodeUI(n.getPos()).getUiController();
-                if (!n.getPos().equals(astar.getTo().getPos()) && !n.getPos().equals(astar.getFrom().getPos())) {
-                    nodeUI.setNodeOpen();
-                }
-
-            });
-
-            new HashSet<>(astar.getClosedSetUpdate()).forEach(n -> {
-
-                if (!n.getPos().equals(astar.getTo().getPos()) && !n.getPos().equals(astar.getFrom().getPos())) {
-                    NodeUIController nodeUI = getNodeUI(n.getPos()).getUiController();
-                    if(chkboxGradientColor.isSelected()) {
-                        nodeUI.updateColorGradient(astar.getFrom().getPos(), astar.getTo().getPos());
-                    } else {
-                        nodeUI.setNodeClosed();
-                    }
-
-                    astar.getClosedSetUpdate().remove(n);
-                }
-
-
-            });
-        });
+    private void setStart(int id) {
+        setBlock(id, false);
+        if (astar.getFrom() != null) {
+            gridCanvas.setCell(astar.getFrom().getId(), NodeType.EMPTY);
+        }
+        astar.setFrom(toVector(id));
+        startSet = true;
+        gridCanvas.setCell(id, NodeType.START);
     }
 
-    public void updateAstarGridFailed() {
-        Platform.runLater((() -> {
-            astar.getClosedSet().forEach(n -> {
-                if (!n.getPos().equals(astar.getTo().getPos()) && !n.getPos().equals(astar.getFrom().getPos())) {
-                    NodeUIController nodeUI = getNodeUI(n.getPos()).getUiController();
-                    nodeUI.setNodeFailed();
-                }
-            });
-        }));
+    private void setDestination(int id) {
+        setBlock(id, false);
+        if (astar.getTo() != null) {
+            gridCanvas.setCell(astar.getTo().getId(), NodeType.EMPTY);
+        }
+        astar.setTo(toVector(id));
+        destinationSet = true;
+        gridCanvas.setCell(id, NodeType.DESTINATION);
     }
 
     /**
-     * Updates the UI Grid based on the astar Grid
+     * Shows a cell of the played back search, the start and destination node keep their color
+     *
+     * @param id   cell id
+     * @param type new type of the cell
      */
-    public void updateAstarGridPath() {
-        new Thread(() -> {
-            astar.getPath().forEach(n -> {
-
-                Platform.runLater(() -> getNodeUI(n.getPos()).getUiController().setPath());
+    public void showCell(int id, NodeType type) {
+        if (id == shownFrom || id == shownTo) {
+            return;
+        }
 
-                try {
-                    Thread.sleep((long) getUpdateRate());
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            });
+        if (type == NodeType.CLOSED && chkboxGradientColor.isSelected()) {
+            gridCanvas.setCell(id, type, gradientColor(id, toVector(shownFrom), toVector(shownTo)));
+        } else {
+            gridCanvas.setCell(id, type);
+        }
+    }
 
-            Platform.runLater(() -> {
-                getNodeUI(astar.getFrom().getPos()).getUiController().setAsStart();
-                getNodeUI(astar.getTo().getPos()).getUiController().setAsDestination();
-            });
-        }).start();
+    /**
+     * Returns the color of a closed node which transitions from the start color to the destination color
+     */
+    private Color gradientColor(int id, Vector2 start, Vector2 dest) {
+        double percent = toVector(id).distance(dest) / start.distance(dest);
+        return GridCanvas.colorOf(NodeType.START).interpolate(GridCanvas.colorOf(NodeType.DESTINATION), percent);
     }
 
     /**
-     * Sets/Removes a block on the specified UI node
+     * Sets/Removes a block on the specified node, the start and destination node can't be blocked
      *
-     * @param node  node to set
+     * @param id    id of the node to set
      * @param block whether to set a block
      */
-    public void setBlock(NodeUI node, boolean block) {
+    public void setBlock(int id, boolean block) {
         try {
-            astar.setBlock(new Vector2(GridPane.getColumnIndex(node), GridPane.getRowIndex(node)), block);
+            astar.setBlock(toVector(id), block);
+            gridCanvas.setCell(id, block ? NodeType.BLOCK : NodeType.EMPTY);
         } catch (Exception ignored) {   }
     }
 
@@ -249,9 +275,44 @@ public class MainUIController {
     private void onCalcPath() {
         if (astarRunning || !startSet || !destinationSet) return;
         astar.setAllowDiagonal(chkboxAllowDiagonals.isSelected());
-        astarThreadSleeping = false;
+        astar.setSearchMode(cmbSearchMode.getValue());
+        // a new search after blocks have been changed only shows its own result
+        playback.stop();
+        gridCanvas.clearSearch();
+        shownFrom = astar.getFrom().getId();
+        shownTo = astar.getTo().getId();
+
+        if (trace == null || trace.getWidth() != gridWidth || trace.getHeight() != gridHeight) {
+            trace = new SearchTrace(gridWidth, gridHeight);
+        }
+        SearchTrace searchTrace = trace;
+        searchTrace.clear();
+        astar.setListener(searchTrace.recorder(astar.getNodeStore()::getFCost));
         astarRunning = true;
-        astarThread = new Thread(astar::calcPath);
+        // the snapshot is taken on this thread, as the map is only edited here
+        GridSnapshot snapshot = astar.getObstacleMap().snapshot();
+        // the search runs at full speed, its recorded steps are played back afterwards
+        astarThread = new Thread(() -> {
+            astar.calcPath(snapshot);
+            if (!Thread.currentThread().isInterrupted()) {
+                String stats = astar.getSearchMode() + ": " + astar.getStats();
+                Thread searchThread = Thread.currentThread();
+                FlightEvents.UiHandoff handoff = new FlightEvents.UiHandoff();
+                handoff.begin();
+                // unless the search has been reset in the meantime
+                Platform.runLater(() -> {
+                    handoff.end();
+                    if (handoff.shouldCommit()) {
+                        handoff.task = "Playback start";
+                        handoff.commit();
+                    }
+                    if (astarThread == searchThread) {
+                        lblStats.setText(stats);
+                        playback.start(searchTrace);
+                    }
+                });
+            }
+        });
         astarThread.start();
 
     }
@@ -281,47 +342,45 @@ public class MainUIController {
 
     @FXML
     public void onPrintGrid() {
-
-        astar.updateNodeCostStatus();
         System.out.println(astar.toString());
     }
 
-    @FXML
-    public void onShowCosts() {
-        new Thread(() -> astarGridPane.getChildren().forEach(n -> {
-            NodeUIController nodeUIController = ((NodeUI) n).getUiController();
-        })).start();
-    }
-
     @FXML
     public void onReset() {
         if (true) { //if !astar.getClosedSet().isEmpty()
             destinationSet = false;
             startSet = false;
-            astarThread = null;
             astarRunning = false;
-            astarThreadSleeping = false;
-            this.astar = new AStar(gridHeight, gridWidth, null, null, this);
+            stopAstarThread();
+            playback.stop();
+            astar.reset();
+            gridCanvas.clear();
+        }
+    }
 
-            astarGridPane.getChildren().forEach((node -> {
-                NodeUI nodeUI = (NodeUI) node;
-                nodeUI.getUiController().removeBlock();
-            }));
+    /**
+     * Cancels a running search and waits for its thread to finish, so the search state can be reset safely
+     */
+    private void stopAstarThread() {
+        if (astarThread != null) {
+            astarThread.interrupt();
+            try {
+                astarThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            astarThread = null;
         }
     }
 
     @FXML
     public void onPausePlay() {
-        if (astarRunning) {
-            if (astarThreadSleeping) {
-                astarWaitForPlay.countDown();
-                astarThreadSleeping = false;
-            } else {
-                astarWaitForPlay = new CountDownLatch(1);
-                astar.setWaiting(astarWaitForPlay);
-                astarThreadSleeping = true;
-            }
-        }
+        playback.togglePause();
+    }
+
+    @FXML
+    public void onStep() {
+        playback.step();
     }
 
     @FXML
@@ -334,28 +393,20 @@ public class MainUIController {
     public void onClearBlocks() {
         if (isAstarRunning()) return;
 
-        astarGridPane.getChildren().forEach(n -> {
-            NodeUI nodeUI = (NodeUI) n;
-            if (nodeUI.getUiController().getNodeType() == NodeType.BLOCK) {
-                nodeUI.getUiController().removeBlock();
-            }
-        });
-
+        ObstacleMap map = astar.getObstacleMap();
+        ObstacleMap blocked = map.copy();
+        map.fill(false);
+        blocked.forEachBlocked(id -> gridCanvas.setCell(id, NodeType.EMPTY));
     }
 
     @FXML
     public void onGenerateMaze() {
         onReset();
-        MazeGenerator mg = new MazeGenerator(new Vector2(gridWidth, gridHeight));
-        boolean[][] maze = mg.generate();
-
-        for(int i = 0; i < maze.length; i++) {
-            for(int j = 0; j < maze[i].length; j++) {
-                if(maze[i][j]) {
-                    getNodeUI(new Vector2(j, i)).getUiController().setAsBlock();
-                }
-            }
-        }
+        MazeGenerator mg = new MazeGenerator(astar.getObstacleMap());
+        long seed = new SplittableRandom().nextLong();
+        mg.generate(cmbMazeAlgorithm.getValue(), seed).forEachBlocked(id -> gridCanvas.setCell(id, NodeType.BLOCK));
+        // the seed reproduces the maze with MazeGenerator.generate
+        lblStats.setText(cmbMazeAlgorithm.getValue() + " maze, seed " + seed);
     }
 
     public boolean isAstarRunning() {
@@ -394,20 +445,20 @@ public class MainUIController {
         this.astar = astar;
     }
 
-    public GridPane getAstarGridPane() {
-        return astarGridPane;
-    }
-
-    public void setAstarGridPane(GridPane astarGridPane) {
-        this.astarGridPane = astarGridPane;
+    public GridCanvas getGridCanvas() {
+        return gridCanvas;
     }
 
-    public NodeUI getNodeUI(Vector2 v) {
-        return (NodeUI) astarGridPane.getChildren().get(v.getY() * gridWidth + v.getX());
+    private Vector2 toVector(int id) {
+        return new Vector2(id % gridWidth, id / gridWidth);
     }
 
-    public double getUpdateRate() {
-        return sldrSpeed.getValue();
+    /**
+     * @return steps of the recorded search shown per frame, growing exponentially with the speed slider
+     */
+    public int getStepsPerFrame() {
+        double speed = (sldrSpeed.getValue() - sldrSpeed.getMin()) / (sldrSpeed.getMax() - sldrSpeed.getMin());
+        return (int) Math.round(Math.pow(MAX_STEPS_PER_FRAME, speed));
     }
 
     public void calcPathFinished() {
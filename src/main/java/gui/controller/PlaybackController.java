@@ -0,0 +1,159 @@
+package gui.controller;
+
+import model.NodeType;
+import util.SearchTrace;
+
+/**
+ * Replays a recorded search on the grid of the main UI. The search runs to completion at full speed into a
+ * {@link SearchTrace}, the playback then shows a configurable amount of its steps per frame and can be paused, stepped
+ * and moved to any step. All methods have to be called on the JavaFX application thread.
+ */
+public class PlaybackController {
+
+    private final MainUIController uiController;
+    private SearchTrace trace;
+    private SearchTrace.Cursor cursor;
+    private boolean playing;
+    private int stepsPerFrame;
+
+    public PlaybackController(MainUIController uiController) {
+        this.uiController = uiController;
+        this.stepsPerFrame = 1;
+    }
+
+    /**
+     * Starts to play a recorded search from its first step
+     *
+     * @param trace events of the search
+     */
+    public void start(SearchTrace trace) {
+        this.trace = trace;
+        this.cursor = trace.cursor();
+        this.playing = true;
+        if (cursor.isAtEnd()) {
+            finish();
+        }
+    }
+
+    /**
+     * Stops the playback, the cells shown so far are kept
+     */
+    public void stop() {
+        trace = null;
+        cursor = null;
+        playing = false;
+    }
+
+    /**
+     * Shows the next steps if the playback isn't paused, called once per frame
+     */
+    public void onFrame() {
+        if (cursor != null && playing) {
+            advance(stepsPerFrame);
+        }
+    }
+
+    public void togglePause() {
+        playing = !playing;
+    }
+
+    /**
+     * Shows the next step of a paused playback
+     */
+    public void step() {
+        if (cursor != null && !playing) {
+            advance(1);
+        }
+    }
+
+    /**
+     * Shows the grid after the given amount of steps
+     *
+     * @param steps amount of steps to show, clamped to the length of the recorded search
+     */
+    public void seek(int steps) {
+        if (cursor == null) {
+            return;
+        }
+
+        cursor.seek(Math.max(0, Math.min(steps, trace.getStepCount())));
+        uiController.getGridCanvas().clearSearch();
+        int size = trace.getWidth() * trace.getHeight();
+        for (int id = 0; id < size; id++) {
+            int status = cursor.getStatus(id);
+            if (status != SearchTrace.UNSEEN) {
+                uiController.showCell(id, toNodeType(status));
+            }
+        }
+        if (cursor.isAtEnd()) {
+            finish();
+        }
+    }
+
+    private void advance(int steps) {
+        cursor.advance(steps, (type, id, fCost) -> uiController.showCell(id, toNodeType(type)));
+        if (cursor.isAtEnd()) {
+            finish();
+        }
+    }
+
+    /**
+     * Marks all closed nodes as failed if no path has been found
+     */
+    private void finish() {
+        if (!trace.isPathFound()) {
+            int size = trace.getWidth() * trace.getHeight();
+            for (int id = 0; id < size; id++) {
+                if (cursor.getStatus(id) == SearchTrace.CLOSED) {
+                    uiController.showCell(id, NodeType.FAILED);
+                }
+            }
+        }
+        playing = false;
+        uiController.calcPathFinished();
+    }
+
+    private static NodeType toNodeType(int event) {
+        switch (event) {
+            case SearchTrace.CLOSED:
+                return NodeType.CLOSED;
+            case SearchTrace.PATH:
+                return NodeType.PATH;
+            default:
+                return NodeType.OPEN;
+        }
+    }
+
+    /**
+     * @return whether a recorded search is being shown, paused or not
+     */
+    public boolean isActive() {
+        return cursor != null;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * @return amount of steps shown, 0 if there's no playback
+     */
+    public int getPosition() {
+        return cursor == null ? 0 : cursor.getPosition();
+    }
+
+    /**
+     * @return amount of steps of the recorded search, 0 if there's no playback
+     */
+    public int getStepCount() {
+        return trace == null ? 0 : trace.getStepCount();
+    }
+
+    public int getStepsPerFrame() {
+        return stepsPerFrame;
+    }
+
+    public void setStepsPerFrame(int stepsPerFrame) {
+        this.stepsPerFrame = Math.max(1, stepsPerFrame);
+    }
+}
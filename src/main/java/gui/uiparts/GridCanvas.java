@@ -0,0 +1,295 @@
+package gui.uiparts;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import model.NodeType;
+
+import java.util.Arrays;
+
+/**
+ * Draws the whole grid on a single canvas instead of using one scene graph node per cell. Every cell is one pixel of an
+ * image which is scaled up to the size of the canvas, so changing a cell only writes one pixel. Changed cells are
+ * collected and written once per pulse, all other cells are left untouched.
+ * <p>
+ * Cells are addressed by their id (y * width + x). All methods must be called on the JavaFX application thread.
+ */
+public class GridCanvas extends Region {
+
+    private static final Color EMPTY_COLOR = Color.rgb(112, 111, 211);
+    private static final Color START_COLOR = Color.rgb(46, 204, 113);
+    private static final Color DESTINATION_COLOR = Color.rgb(231, 76, 60);
+    private static final Color OPEN_COLOR = Color.rgb(82, 82, 160);
+    private static final Color CLOSED_COLOR = Color.rgb(44, 44, 84);
+    private static final Color BLOCK_COLOR = Color.rgb(52, 73, 94);
+    private static final Color PATH_COLOR = Color.rgb(9, 132, 227);
+    private static final Color FAILED_COLOR = Color.rgb(255, 30, 60);
+    private static final Color LINE_COLOR = Color.rgb(99, 110, 114, 0.1);
+    private static final NodeType[] TYPES = NodeType.values();
+    /**
+     * Minimum size of a cell in pixels for grid lines to be drawn
+     */
+    private static final double MIN_LINE_CELL_SIZE = 6;
+
+    private final Canvas canvas;
+    private int gridWidth;
+    private int gridHeight;
+    /**
+     * One pixel per cell
+     */
+    private WritableImage image;
+    /**
+     * Type of every cell, stored as ordinal
+     */
+    private byte[] types;
+    /**
+     * Color of every cell as ARGB
+     */
+    private int[] colors;
+    /**
+     * Ids of the cells changed since the last repaint
+     */
+    private int[] dirty;
+    private int dirtyCount;
+    /**
+     * Whether a cell is in the dirty list
+     */
+    private boolean[] isDirty;
+    private boolean repaintScheduled;
+
+    /**
+     * GridCanvas Constructor
+     *
+     * @param height Height of the grid
+     * @param width  Width of the grid
+     */
+    public GridCanvas(int height, int width) {
+        this.canvas = new Canvas();
+        getChildren().add(canvas);
+        setGridSize(height, width);
+    }
+
+    /**
+     * Changes the size of the grid, all cells are empty afterwards
+     *
+     * @param height Height of the grid
+     * @param width  Width of the grid
+     */
+    public void setGridSize(int height, int width) {
+        if (height <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Grid size must be positive");
+        }
+
+        this.gridWidth = width;
+        this.gridHeight = height;
+        int size = Math.multiplyExact(height, width);
+        this.image = new WritableImage(width, height);
+        this.types = new byte[size];
+        this.colors = new int[size];
+        this.dirty = new int[size];
+        this.isDirty = new boolean[size];
+        this.dirtyCount = 0;
+        clear();
+    }
+
+    /**
+     * Sets all cells to empty
+     */
+    public void clear() {
+        Arrays.fill(types, (byte) NodeType.EMPTY.ordinal());
+        Arrays.fill(colors, toArgb(EMPTY_COLOR));
+        Arrays.fill(isDirty, false);
+        dirtyCount = 0;
+        image.getPixelWriter().setPixels(0, 0, gridWidth, gridHeight, PixelFormat.getIntArgbInstance(), colors, 0,
+                gridWidth);
+        draw();
+    }
+
+    /**
+     * Sets the cells colored by a previous search (open, closed, path and failed cells) back to empty, blocks and the
+     * start and destination node are kept
+     */
+    public void clearSearch() {
+        for (int id = 0; id < types.length; id++) {
+            NodeType type = TYPES[types[id]];
+            if (type == NodeType.OPEN || type == NodeType.CLOSED || type == NodeType.PATH || type == NodeType.FAILED) {
+                setCell(id, NodeType.EMPTY);
+            }
+        }
+    }
+
+    /**
+     * Changes the type of a cell and colors it with the color of the type
+     *
+     * @param id   cell id
+     * @param type new type of the cell
+     */
+    public void setCell(int id, NodeType type) {
+        setCell(id, type, colorOf(type));
+    }
+
+    /**
+     * Changes the type of a cell and colors it with the given color
+     *
+     * @param id    cell id
+     * @param type  new type of the cell
+     * @param color color of the cell
+     */
+    public void setCell(int id, NodeType type, Color color) {
+        types[id] = (byte) type.ordinal();
+        int argb = toArgb(color);
+        if (colors[id] == argb) {
+            return;
+        }
+
+        colors[id] = argb;
+        if (!isDirty[id]) {
+            isDirty[id] = true;
+            dirty[dirtyCount++] = id;
+        }
+        scheduleRepaint();
+    }
+
+    public NodeType getCell(int id) {
+        return TYPES[types[id]];
+    }
+
+    /**
+     * Returns the cell at a position of the canvas, e.g. of a mouse event
+     *
+     * @param x X Coordinate relative to this region
+     * @param y Y Coordinate relative to this region
+     * @return cell id or -1 if the position is outside of the grid
+     */
+    public int cellAt(double x, double y) {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return -1;
+        }
+
+        int column = (int) Math.floor(x * gridWidth / getWidth());
+        int row = (int) Math.floor(y * gridHeight / getHeight());
+        if (column < 0 || column >= gridWidth || row < 0 || row >= gridHeight) {
+            return -1;
+        }
+
+        return row * gridWidth + column;
+    }
+
+    public static Color colorOf(NodeType type) {
+        switch (type) {
+            case START:
+                return START_COLOR;
+            case DESTINATION:
+                return DESTINATION_COLOR;
+            case OPEN:
+                return OPEN_COLOR;
+            case CLOSED:
+                return CLOSED_COLOR;
+            case BLOCK:
+                return BLOCK_COLOR;
+            case PATH:
+                return PATH_COLOR;
+            case FAILED:
+                return FAILED_COLOR;
+            default:
+                return EMPTY_COLOR;
+        }
+    }
+
+    /**
+     * Repaints once after the current event has been handled, so many changed cells only cause one repaint
+     */
+    private void scheduleRepaint() {
+        if (!repaintScheduled) {
+            repaintScheduled = true;
+            Platform.runLater(this::repaint);
+        }
+    }
+
+    /**
+     * Writes the changed cells into the image and draws it, does nothing if no cell has changed
+     */
+    public void repaint() {
+        repaintScheduled = false;
+        if (dirtyCount == 0) {
+            return;
+        }
+
+        PixelWriter writer = image.getPixelWriter();
+        for (int i = 0; i < dirtyCount; i++) {
+            int id = dirty[i];
+            isDirty[id] = false;
+            writer.setArgb(id % gridWidth, id / gridWidth, colors[id]);
+        }
+        dirtyCount = 0;
+        draw();
+    }
+
+    private void draw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setImageSmoothing(false);
+        gc.drawImage(image, 0, 0, width, height);
+
+        double cellWidth = width / gridWidth;
+        double cellHeight = height / gridHeight;
+        if (cellWidth >= MIN_LINE_CELL_SIZE && cellHeight >= MIN_LINE_CELL_SIZE) {
+            gc.setStroke(LINE_COLOR);
+            gc.setLineWidth(1);
+            for (int i = 1; i < gridWidth; i++) {
+                double x = Math.round(i * cellWidth) + 0.5;
+                gc.strokeLine(x, 0, x, height);
+            }
+            for (int i = 1; i < gridHeight; i++) {
+                double y = Math.round(i * cellHeight) + 0.5;
+                gc.strokeLine(0, y, width, y);
+            }
+        }
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth());
+        double height = snapSizeY(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            draw();
+        }
+    }
+
+    @Override
+    protected double computeMinWidth(double height) {
+        return 0;
+    }
+
+    @Override
+    protected double computeMinHeight(double width) {
+        return 0;
+    }
+
+    private static int toArgb(Color color) {
+        return (int) Math.round(color.getOpacity() * 255) << 24
+                | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8
+                | (int) Math.round(color.getBlue() * 255);
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+}
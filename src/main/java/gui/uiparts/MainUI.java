@@ -6,6 +6,7 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
+import util.SearchMetrics;
 
 public class MainUI extends Application {
     public static void startUI() {
@@ -14,6 +15,8 @@ public class MainUI extends Application {
 
     @Override
     public void start(Stage stage) throws Exception {
+        // the counters of all searches can be watched with any JMX client
+        SearchMetrics.register();
         Parent root = FXMLLoader.load(getClass().getResource("/fxml/MainUI.fxml"));
         Scene scene = new Scene(root, 1000, 1000);
         stage.setTitle("Visual A*");
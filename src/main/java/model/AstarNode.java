@@ -3,171 +3,111 @@ package model;
 import util.AStar;
 
 /**
- * This class represents a node in graph specific for this implementation of the A* Algorithm
+ * This class represents a node in graph specific for this implementation of the A* Algorithm. The node doesn't hold
+ * any state itself, it is a lightweight view on one entry of a {@link NodeStore}, so it is only created when a node is
+ * handed out (e.g. to the GUI) and never during a search.
  */
 public class AstarNode {
 
     /**
-     * Coordinate (or position) of the node in the grid
+     * Store containing the state of the node
      */
-    Vector2 pos;
+    private final NodeStore store;
     /**
-     * String shown in the CLI (exactly 2 chars long)
+     * Id of the node in the store (y * width + x)
      */
-    private String status;
-    /**
-     * G Cost and H Cost combined
-     */
-    private int fCost;
-    /**
-     * Heuristic: Distance to the end node
-     */
-    private int hCost;
-    /**
-     * Distance to the start node
-     */
-    private int gCost;
-    /**
-     * Whether the node is traversable
-     */
-    private boolean walkable;
-    /**
-     * Parent (or previous) node
-     */
-    private AstarNode previous;
+    private final int id;
 
     /**
      * Node constructor
      *
-     * @param pos Coordinate of the node in the grid
+     * @param store Store containing the state of the node
+     * @param id    Id of the node in the store
      */
-    public AstarNode(Vector2 pos) {
-        this.pos = pos;
-        this.status = "  ";
-        this.fCost = Integer.MAX_VALUE;
-        this.hCost = Integer.MAX_VALUE;
-        this.gCost = Integer.MAX_VALUE;
-        this.walkable = true;
-        this.previous = null;
+    public AstarNode(NodeStore store, int id) {
+        this.store = store;
+        this.id = id;
     }
 
     /**
-     * Checks whether a shorter path is found
+     * Calculates the H cost (octile distance) between two coordinates
      *
-     * @param openedAstarNode Node which called this method
-     * @param cost            Cost to move from the calling node to this
-     * @return whether the path is shorter
+     * @param x   X Coordinate of the node
+     * @param y   Y Coordinate of the node
+     * @param toX X Coordinate of the destination node
+     * @param toY Y Coordinate of the destination node
+     * @return H cost
      */
-    public boolean checkShorterPath(AstarNode openedAstarNode, int cost) {
-        return openedAstarNode.getGCost() + cost < gCost;
-    }
-
-    /**
-     * Calculates all Costs
-     *
-     * @param to   Destination node
-     * @param cost Cost to move to this node from the calling node
-     */
-    public void calcAllCosts(AstarNode to, int cost) {
-        calcHCost(to);
-        calcGCost(cost);
-        fCost = gCost + hCost;
-    }
-
-    /**
-     * Calculates the H cost
-     *
-     * @param to Destination node
-     */
-    public void calcHCost(AstarNode to) {
-        int dx = Math.abs(this.getX() - to.getX());
-        int dy = Math.abs(this.getY() - to.getY());
-        hCost = AStar.getDefCost() * (dx + dy) + (AStar.getDiagCost() - 2 * AStar.getDefCost()) * Math.min(dx, dy);
+    public static int calcHCost(int x, int y, int toX, int toY) {
+        int dx = Math.abs(x - toX);
+        int dy = Math.abs(y - toY);
+        int hCost = AStar.getDefCost() * (dx + dy) + (AStar.getDiagCost() - 2 * AStar.getDefCost()) * Math.min(dx, dy);
         hCost *= AStar.gethCostWeight();
-        //hCost = (int) Math.sqrt(Math.pow(pos.getX() - to.getX(), 2) + Math.pow(pos.getY() - to.getY(), 2)) * 10;
-    }
-
-    /**
-     * Calculates the G cost
-     *
-     * @param cost Cost to move to this node from the calling node
-     */
-    public void calcGCost(int cost) {
-
-        gCost = previous.getGCost() + cost;
+        return hCost;
     }
 
     @Override
     public boolean equals(Object o) {
+        if (!(o instanceof AstarNode)) return false;
         AstarNode oAstarNode = (AstarNode) o;
-        return (this.pos.getX() == oAstarNode.getX() && this.pos.getY() == oAstarNode.getY());
+        return this.store == oAstarNode.store && this.id == oAstarNode.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
     }
 
     public AstarNode getPrevious() {
-        return this.previous;
+        int previous = store.getParent(id);
+        return previous == NodeStore.NO_PARENT ? null : new AstarNode(store, previous);
     }
 
     public void setPrevious(AstarNode previous) {
-        this.previous = previous;
+        store.setParent(id, previous == null ? NodeStore.NO_PARENT : previous.getId());
     }
 
-    public boolean isWalkable() {
-        return this.walkable;
+    public boolean isClosed() {
+        return store.isClosed(id);
     }
 
-    public void setWalkable(boolean walkable) {
-        this.walkable = walkable;
+    public int getId() {
+        return this.id;
     }
 
     public int getX() {
-        return this.pos.getX();
-    }
-
-    public void setX(int x) {
-        this.pos.setX(x);
+        return store.getX(id);
     }
 
     public int getY() {
-        return this.pos.getY();
-    }
-
-    public void setY(int y) {
-        this.pos.setY(y);
-    }
-
-    public String getStatus() {
-        return this.status;
-    }
-
-    public void setStatus(String status) {
-        this.status = status;
+        return store.getY(id);
     }
 
     public int getFCost() {
-        return this.fCost;
+        return store.getFCost(id);
     }
 
     public void setFCost(int fCost) {
-        this.fCost = fCost;
+        store.setFCost(id, fCost);
     }
 
     public int getHCost() {
-        return this.hCost;
+        return store.getHCost(id);
     }
 
     public void setHCost(int hCost) {
-        this.hCost = hCost;
+        store.setHCost(id, hCost);
     }
 
     public int getGCost() {
-        return this.gCost;
+        return store.getGCost(id);
     }
 
     public void setGCost(int gCost) {
-        this.gCost = gCost;
+        store.setGCost(id, gCost);
     }
 
     public Vector2 getPos() {
-        return pos;
+        return new Vector2(getX(), getY());
     }
 }
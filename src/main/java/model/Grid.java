@@ -0,0 +1,54 @@
+package model;
+
+/**
+ * Read access to the walkability of the nodes of a grid. Nodes are addressed by their id (y * width + x). Searches
+ * only read through this interface, so they can run on an editable {@link ObstacleMap} as well as on an immutable
+ * {@link GridSnapshot}.
+ */
+public interface Grid {
+
+    int getWidth();
+
+    int getHeight();
+
+    boolean isBlocked(int id);
+
+    boolean isWalkable(int id);
+
+    /**
+     * Checks whether a node is walkable, nodes outside of the grid are treated as blocked
+     *
+     * @param x X Coordinate
+     * @param y Y Coordinate
+     * @return whether the node is in the grid and walkable
+     */
+    default boolean isWalkable(int x, int y) {
+        return isInBounds(x, y) && isWalkable(index(x, y));
+    }
+
+    /**
+     * @return version of the grid, which changes whenever the walkability of a node changes. Two grids only share a
+     * version if one is a snapshot of the other, so equal versions mean equal blocked nodes.
+     */
+    long getVersion();
+
+    default int index(int x, int y) {
+        return y * getWidth() + x;
+    }
+
+    default int getX(int id) {
+        return id % getWidth();
+    }
+
+    default int getY(int id) {
+        return id / getWidth();
+    }
+
+    default boolean isInBounds(int x, int y) {
+        return x >= 0 && x < getWidth() && y >= 0 && y < getHeight();
+    }
+
+    default int size() {
+        return getWidth() * getHeight();
+    }
+}
@@ -0,0 +1,108 @@
+package model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable version of the blocked nodes of an {@link ObstacleMap}. A snapshot never changes after it has been taken,
+ * so any number of threads can search it at the same time without locks, while the map it has been taken from is
+ * edited. Snapshots are created with {@link ObstacleMap#snapshot()} and carry the version of the map they show, two
+ * snapshots of the same map with the same version contain the same nodes.
+ */
+public final class GridSnapshot implements Grid {
+
+    private final int width;
+    private final int height;
+    /**
+     * Blocked nodes, one bit per node, never modified (the map copies them before its next edit)
+     */
+    private final long[] words;
+    /**
+     * Version of the map when the snapshot was taken
+     */
+    private final long version;
+
+    GridSnapshot(int height, int width, long[] words, long version) {
+        this.width = width;
+        this.height = height;
+        this.words = words;
+        this.version = version;
+    }
+
+    @Override
+    public boolean isBlocked(int id) {
+        return (words[id >>> 6] & (1L << id)) != 0;
+    }
+
+    @Override
+    public boolean isWalkable(int id) {
+        return (words[id >>> 6] & (1L << id)) == 0;
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && isWalkable(y * width + x);
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public int getX(int id) {
+        return id % width;
+    }
+
+    @Override
+    public int getY(int id) {
+        return id / width;
+    }
+
+    /**
+     * @return amount of blocked nodes
+     */
+    public int countBlocked() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Calls the consumer for the id of every blocked node
+     *
+     * @param action consumer to call
+     */
+    public void forEachBlocked(IntConsumer action) {
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                action.accept(i * 64 + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * @return a new editable map with the same blocked nodes
+     */
+    public ObstacleMap toObstacleMap() {
+        return new ObstacleMap(height, width, words.clone());
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,199 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only grid backed by a memory-mapped tile file, so a search can start on a very large map without reading it
+ * onto the heap first: the operating system pages in the parts of the file the search actually touches.
+ * <p>
+ * A tile file starts with a header of four big-endian ints (magic number, format version, width and height), followed
+ * by one bit per node in id order, set if the node is blocked. The bits are padded to whole 64 bit words and laid out
+ * like the words of an {@link ObstacleMap} stored in little-endian order. Tile files are written by
+ * {@link #write(Path, int, int, BlockedNodes)}, e.g. when a Moving AI map is converted by {@code util.MovingAiLoader}.
+ * <p>
+ * The grid never changes, so its version stays the same and any number of threads can search it at the same time.
+ */
+public final class MappedGrid implements Grid {
+
+    /**
+     * "VASG", visual a star grid
+     */
+    public static final int MAGIC = 0x56415347;
+    public static final int FORMAT_VERSION = 1;
+    /**
+     * Size of the header in bytes
+     */
+    public static final int HEADER_SIZE = 16;
+
+    private final int width;
+    private final int height;
+    /**
+     * Blocked nodes, one bit per node
+     */
+    private final MappedByteBuffer tiles;
+    /**
+     * Version of the grid, unique among all grids as the grid never changes
+     */
+    private final long version = ObstacleMap.nextVersion();
+
+    private MappedGrid(int height, int width, MappedByteBuffer tiles) {
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Maps a tile file into memory, only the header is read
+     *
+     * @param file tile file
+     * @return the grid stored in the file
+     * @throws IOException if the file can't be read or isn't a valid tile file
+     */
+    public static MappedGrid open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(String.format("%s is not a tile file", file));
+            }
+
+            // the mapping stays valid after the channel has been closed
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int magic = header.getInt();
+            int formatVersion = header.getInt();
+            int width = header.getInt();
+            int height = header.getInt();
+            if (magic != MAGIC || formatVersion != FORMAT_VERSION) {
+                throw new IOException(String.format("%s is not a tile file of version %d", file, FORMAT_VERSION));
+            }
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s has an invalid size of %dx%d", file, height, width));
+            }
+
+            long length = dataLength(height, width);
+            if (channel.size() != HEADER_SIZE + length) {
+                throw new IOException(String.format("%s should be %d bytes long but is %d bytes long", file,
+                        HEADER_SIZE + length, channel.size()));
+            }
+
+            MappedByteBuffer tiles = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, length);
+            tiles.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedGrid(height, width, tiles);
+        }
+    }
+
+    /**
+     * Writes a tile file row by row, so the whole grid never has to be in memory at once
+     *
+     * @param file    file to write, replaced if it exists
+     * @param height  Height of the grid
+     * @param width   Width of the grid
+     * @param blocked source of the blocked nodes, asked for the rows in ascending order
+     * @throws IOException if the file can't be written or the source fails
+     */
+    public static void write(Path file, int height, int width, BlockedNodes blocked) throws IOException {
+        if (height <= 0 || width <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Invalid grid size %dx%d", height, width));
+        }
+
+        long length = dataLength(height, width);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(width).putInt(height);
+
+            MappedByteBuffer tiles = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, length);
+            boolean[] row = new boolean[width];
+            for (int y = 0; y < height; y++) {
+                blocked.readRow(y, row);
+                for (int x = 0; x < width; x++) {
+                    if (row[x]) {
+                        int id = y * width + x;
+                        tiles.put(id >>> 3, (byte) (tiles.get(id >>> 3) | 1 << (id & 7)));
+                    }
+                }
+            }
+            tiles.force();
+        }
+    }
+
+    /**
+     * Amount of bytes needed for the bits of a grid, padded to whole 64 bit words
+     */
+    private static long dataLength(int height, int width) {
+        return (((long) height * width + 63) >>> 6) << 3;
+    }
+
+    @Override
+    public boolean isBlocked(int id) {
+        return (tiles.get(id >>> 3) & 1 << (id & 7)) != 0;
+    }
+
+    @Override
+    public boolean isWalkable(int id) {
+        return (tiles.get(id >>> 3) & 1 << (id & 7)) == 0;
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && isWalkable(y * width + x);
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public int getX(int id) {
+        return id % width;
+    }
+
+    @Override
+    public int getY(int id) {
+        return id / width;
+    }
+
+    /**
+     * @return a new editable map with the same blocked nodes, which reads the whole grid onto the heap
+     */
+    public ObstacleMap toObstacleMap() {
+        long[] words = new long[(int) (dataLength(height, width) >>> 3)];
+        tiles.duplicate().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(words);
+        return new ObstacleMap(height, width, words);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Source of the blocked nodes of a grid written to a tile file
+     */
+    @FunctionalInterface
+    public interface BlockedNodes {
+
+        /**
+         * Fills in which nodes of a row are blocked
+         *
+         * @param y   Y Coordinate of the row
+         * @param row array of the width of the grid to fill, true meaning blocked
+         * @throws IOException if the row can't be read
+         */
+        void readRow(int y, boolean[] row) throws IOException;
+    }
+}
@@ -0,0 +1,41 @@
+package model;
+
+/**
+ * Algorithms to generate a perfect maze, i.e. one with exactly one path between any two cells
+ */
+public enum MazeAlgorithm {
+    /**
+     * Depth first search which carves into a random unvisited neighbour and backtracks at dead ends, gives long
+     * winding corridors with few branches
+     */
+    RECURSIVE_BACKTRACKER("Recursive Backtracker"),
+    /**
+     * Removes the walls in random order unless both sides are already connected (union-find), gives many short dead
+     * ends
+     */
+    KRUSKAL("Kruskal"),
+    /**
+     * Grows the maze from a random cell by connecting a random cell of its frontier, gives many short branches
+     * radiating from the start
+     */
+    PRIM("Prim"),
+    /**
+     * Connects the cells by loop-erased random walks, picks every perfect maze with the same probability
+     */
+    WILSON("Wilson"),
+    /**
+     * Splits the grid by walls with a single gap and recurses into both halves, gives long straight walls
+     */
+    RECURSIVE_DIVISION("Recursive Division");
+
+    private final String displayName;
+
+    MazeAlgorithm(String displayName) {
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
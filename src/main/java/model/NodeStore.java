@@ -0,0 +1,216 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compact storage of the search state of every node in the grid. Instead of one object per node all values are kept in
+ * parallel arrays which are indexed by the id of a node (y * width + x), so a search doesn't allocate anything per
+ * node. Which nodes are walkable is stored in an {@link ObstacleMap}.
+ * <p>
+ * The store is meant to be reused for many searches on the same grid. Every search gets a new generation number and
+ * every node remembers the generation it has last been touched in, values of older generations read as unvisited.
+ * Starting a new search therefore only increments the generation instead of clearing all arrays.
+ */
+public class NodeStore {
+
+    /**
+     * Marks a node without a parent
+     */
+    public static final int NO_PARENT = -1;
+    /**
+     * Highest generation before the stamps have to be cleared, the lowest bit of a stamp holds the closed flag
+     */
+    private static final int MAX_GENERATION = Integer.MAX_VALUE >>> 1;
+
+    private final int width;
+    private final int height;
+    /**
+     * G Cost and H Cost combined
+     */
+    private final int[] fCosts;
+    /**
+     * Heuristic: Distance to the end node
+     */
+    private final int[] hCosts;
+    /**
+     * Distance to the start node
+     */
+    private final int[] gCosts;
+    /**
+     * Id of the parent (or previous) node
+     */
+    private final int[] parents;
+    /**
+     * Generation a node has last been touched in (shifted left by one) and whether it is closed (lowest bit, closed
+     * meaning all it's neighbours have been added)
+     */
+    private final int[] stamps;
+    /**
+     * Generation of the current search, starts at 1 so the zeroed stamps of a new store read as unvisited
+     */
+    private int generation;
+
+    /**
+     * NodeStore Constructor
+     *
+     * @param height Height of the grid
+     * @param width  Width of the grid
+     */
+    public NodeStore(int height, int width) {
+        if (height <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Grid size must be positive");
+        }
+
+        this.width = width;
+        this.height = height;
+        int size = Math.multiplyExact(height, width);
+        this.fCosts = new int[size];
+        this.hCosts = new int[size];
+        this.gCosts = new int[size];
+        this.parents = new int[size];
+        this.stamps = new int[size];
+        this.generation = 1;
+    }
+
+    /**
+     * Resets the costs, parents and closed flags of all nodes by starting a new generation, takes constant time
+     */
+    public void resetSearch() {
+        if (generation == MAX_GENERATION) {
+            Arrays.fill(stamps, 0);
+            generation = 0;
+        }
+        generation++;
+    }
+
+    /**
+     * @param id id of the node
+     * @return whether the node has been touched in the current search
+     */
+    public boolean isVisited(int id) {
+        return stamps[id] >>> 1 == generation;
+    }
+
+    /**
+     * Initializes a node which hasn't been touched in the current search yet
+     */
+    private void visit(int id) {
+        if (stamps[id] >>> 1 != generation) {
+            fCosts[id] = Integer.MAX_VALUE;
+            hCosts[id] = Integer.MAX_VALUE;
+            gCosts[id] = Integer.MAX_VALUE;
+            parents[id] = NO_PARENT;
+            stamps[id] = generation << 1;
+        }
+    }
+
+    /**
+     * @param x X Coordinate (or Column)
+     * @param y Y Coordinate (or Row)
+     * @return id of the node
+     */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public int getX(int id) {
+        return id % width;
+    }
+
+    public int getY(int id) {
+        return id / width;
+    }
+
+    public boolean isInBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public boolean isClosed(int id) {
+        return stamps[id] == (generation << 1 | 1);
+    }
+
+    public void setClosed(int id) {
+        visit(id);
+        stamps[id] |= 1;
+    }
+
+    /**
+     * Calls the consumer for the id of every closed node
+     *
+     * @param action consumer to call
+     */
+    public void forEachClosed(IntConsumer action) {
+        for (int id = 0; id < stamps.length; id++) {
+            if (isClosed(id)) {
+                action.accept(id);
+            }
+        }
+    }
+
+    /**
+     * Sets the G and H cost of a node and updates its F cost accordingly
+     *
+     * @param id    id of the node
+     * @param gCost distance to the start node
+     * @param hCost heuristic distance to the end node
+     */
+    public void setCosts(int id, int gCost, int hCost) {
+        visit(id);
+        gCosts[id] = gCost;
+        hCosts[id] = hCost;
+        fCosts[id] = gCost + hCost;
+    }
+
+    public int getFCost(int id) {
+        return isVisited(id) ? fCosts[id] : Integer.MAX_VALUE;
+    }
+
+    public void setFCost(int id, int fCost) {
+        visit(id);
+        fCosts[id] = fCost;
+    }
+
+    public int getHCost(int id) {
+        return isVisited(id) ? hCosts[id] : Integer.MAX_VALUE;
+    }
+
+    public void setHCost(int id, int hCost) {
+        visit(id);
+        hCosts[id] = hCost;
+    }
+
+    public int getGCost(int id) {
+        return isVisited(id) ? gCosts[id] : Integer.MAX_VALUE;
+    }
+
+    public void setGCost(int id, int gCost) {
+        visit(id);
+        gCosts[id] = gCost;
+    }
+
+    public int getParent(int id) {
+        return isVisited(id) ? parents[id] : NO_PARENT;
+    }
+
+    public void setParent(int id, int parent) {
+        visit(id);
+        parents[id] = parent;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int size() {
+        return parents.length;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+}
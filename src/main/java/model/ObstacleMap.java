@@ -0,0 +1,381 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Bitmap of all impassable nodes of a grid, one bit per node stored in a long array. Bits are addressed by the id of a
+ * node (y * width + x), a set bit means the node is blocked. Bulk operations work on whole words, so filling, copying
+ * or setting rectangles touches 64 nodes at once. A 10000x10000 grid takes about 12 MB.
+ * <p>
+ * Every modification changes the version of the map, which lets derived data (e.g. precomputed jump distances or
+ * cached paths) detect that it is outdated. Versions are drawn from a counter shared by all grids, so data derived from
+ * one map is never taken for data of another map of the same size. A new version is only drawn when it is read after
+ * a modification, so edits in bulk don't touch the shared counter.
+ * <p>
+ * Searches which must not see edits while they run work on an immutable {@link #snapshot()} of the current version.
+ * Snapshots are copy-on-write: taking one shares the bitmap with the snapshot, only the first edit afterwards copies
+ * it. Taking several snapshots of the same version returns the same instance. The map itself isn't thread safe, it
+ * must only be edited and snapshotted by one thread at a time.
+ */
+public class ObstacleMap implements Grid {
+
+    private static final int WORD_BITS = 64;
+    private static final long ALL_BITS = -1L;
+    /**
+     * Source of the versions of all grids
+     */
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final int width;
+    private final int height;
+    /**
+     * Blocked nodes, shared with the latest snapshot until the next edit
+     */
+    private long[] words;
+    /**
+     * Version of the map as of the last time it has been read
+     */
+    private long version;
+    /**
+     * Whether the map has been modified since the version has been read
+     */
+    private boolean modified;
+    /**
+     * Snapshot of the latest version taken, null if none has been taken yet
+     */
+    private GridSnapshot snapshot;
+    /**
+     * Whether the words are shared with a snapshot and have to be copied before they are modified
+     */
+    private boolean shared;
+
+    /**
+     * ObstacleMap Constructor, all nodes are walkable
+     *
+     * @param height Height of the grid
+     * @param width  Width of the grid
+     */
+    public ObstacleMap(int height, int width) {
+        if (height <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Grid size must be positive");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.words = new long[(int) ((Math.multiplyExact(height, width) + (long) WORD_BITS - 1) / WORD_BITS)];
+        this.version = nextVersion();
+    }
+
+    /**
+     * Constructor for a map using the given words, which must not be used by anyone else
+     */
+    ObstacleMap(int height, int width, long[] words) {
+        this.width = width;
+        this.height = height;
+        this.words = words;
+        this.version = nextVersion();
+    }
+
+    /**
+     * @return a version no grid has had before
+     */
+    static long nextVersion() {
+        return VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Creates a map from a 2D boolean array, true meaning the node is blocked e.g. if input[2][3] is true the node at
+     * x: 3 and y: 2 is blocked
+     *
+     * @param input input array, all rows must have the same length
+     * @return the map
+     */
+    public static ObstacleMap of(boolean[][] input) {
+        ObstacleMap map = new ObstacleMap(input.length, input.length == 0 ? 0 : input[0].length);
+        for (int i = 0; i < input.length; i++) {
+            if (input[i].length != map.width) {
+                throw new IllegalArgumentException("All rows of the input array must have the same length");
+            }
+            for (int j = 0; j < input[i].length; j++) {
+                if (input[i][j]) {
+                    map.words[map.index(j, i) >>> 6] |= 1L << map.index(j, i);
+                }
+            }
+        }
+        return map;
+    }
+
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public int getX(int id) {
+        return id % width;
+    }
+
+    public int getY(int id) {
+        return id / width;
+    }
+
+    public boolean isInBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public boolean isBlocked(int id) {
+        return (words[id >>> 6] & (1L << id)) != 0;
+    }
+
+    public boolean isWalkable(int id) {
+        return (words[id >>> 6] & (1L << id)) == 0;
+    }
+
+    /**
+     * Checks whether a node is walkable, nodes outside of the grid are treated as blocked
+     *
+     * @param x X Coordinate
+     * @param y Y Coordinate
+     * @return whether the node is in the grid and walkable
+     */
+    public boolean isWalkable(int x, int y) {
+        return isInBounds(x, y) && isWalkable(index(x, y));
+    }
+
+    public void setBlocked(int id, boolean blocked) {
+        beforeEdit();
+        if (blocked) {
+            words[id >>> 6] |= 1L << id;
+        } else {
+            words[id >>> 6] &= ~(1L << id);
+        }
+        modified = true;
+    }
+
+    public void setBlocked(int x, int y, boolean blocked) {
+        checkBounds(x, y);
+        setBlocked(index(x, y), blocked);
+    }
+
+    /**
+     * Blocks or clears all nodes
+     *
+     * @param blocked whether the nodes should be blocked
+     */
+    public void fill(boolean blocked) {
+        if (shared) {
+            // all words are overwritten anyway
+            words = new long[words.length];
+            shared = false;
+        }
+        Arrays.fill(words, blocked ? ALL_BITS : 0L);
+        clearUnusedBits();
+        modified = true;
+    }
+
+    /**
+     * Blocks or clears a rectangle of nodes
+     *
+     * @param x       X Coordinate of the upper left corner
+     * @param y       Y Coordinate of the upper left corner
+     * @param w       width of the rectangle
+     * @param h       height of the rectangle
+     * @param blocked whether the nodes should be blocked
+     */
+    public void setRect(int x, int y, int w, int h, boolean blocked) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        checkBounds(x, y);
+        checkBounds(x + w - 1, y + h - 1);
+        beforeEdit();
+
+        if (w == width) {
+            // whole rows are one continuous range of bits
+            setRange(index(0, y), index(0, y + h), blocked);
+        } else {
+            for (int i = y; i < y + h; i++) {
+                setRange(index(x, i), index(x + w, i), blocked);
+            }
+        }
+        modified = true;
+    }
+
+    public void fillRect(int x, int y, int w, int h) {
+        setRect(x, y, w, h, true);
+    }
+
+    public void clearRect(int x, int y, int w, int h) {
+        setRect(x, y, w, h, false);
+    }
+
+    /**
+     * Sets or clears the bits from fromId (inclusive) to toId (exclusive)
+     */
+    private void setRange(int fromId, int toId, boolean blocked) {
+        if (fromId >= toId) {
+            return;
+        }
+
+        int first = fromId >>> 6;
+        int last = (toId - 1) >>> 6;
+        long firstMask = ALL_BITS << fromId;
+        long lastMask = ALL_BITS >>> -toId;
+
+        if (first == last) {
+            apply(first, firstMask & lastMask, blocked);
+            return;
+        }
+
+        apply(first, firstMask, blocked);
+        Arrays.fill(words, first + 1, last, blocked ? ALL_BITS : 0L);
+        apply(last, lastMask, blocked);
+    }
+
+    private void apply(int word, long mask, boolean blocked) {
+        if (blocked) {
+            words[word] |= mask;
+        } else {
+            words[word] &= ~mask;
+        }
+    }
+
+    /**
+     * Overwrites this map with the nodes of another map of the same size
+     *
+     * @param other map to copy
+     */
+    public void copyFrom(ObstacleMap other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException(String.format("Map must be size %dx%d", height, width));
+        }
+
+        if (shared) {
+            words = new long[words.length];
+            shared = false;
+        }
+        System.arraycopy(other.words, 0, words, 0, words.length);
+        modified = true;
+    }
+
+    /**
+     * Blocks all nodes which are blocked in another map of the same size, nodes blocked in this map stay blocked
+     *
+     * @param other map with the nodes to block
+     */
+    public void or(ObstacleMap other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException(String.format("Map must be size %dx%d", height, width));
+        }
+
+        beforeEdit();
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+        modified = true;
+    }
+
+    /**
+     * @return a new map with the same blocked nodes
+     */
+    public ObstacleMap copy() {
+        ObstacleMap copy = new ObstacleMap(height, width);
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        return copy;
+    }
+
+    /**
+     * Returns an immutable snapshot of the current version, takes constant time as the nodes are only copied by the
+     * next edit
+     *
+     * @return snapshot of the current blocked nodes
+     */
+    public GridSnapshot snapshot() {
+        long current = getVersion();
+        if (snapshot == null || snapshot.getVersion() != current) {
+            snapshot = new GridSnapshot(height, width, words, current);
+            shared = true;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Copies the words if they are shared with a snapshot, so the snapshot doesn't change
+     */
+    private void beforeEdit() {
+        if (shared) {
+            words = words.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * @return amount of blocked nodes
+     */
+    public int countBlocked() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Calls the consumer for the id of every blocked node
+     *
+     * @param action consumer to call
+     */
+    public void forEachBlocked(IntConsumer action) {
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                action.accept(i * WORD_BITS + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Converts the map into a 2D boolean array, true meaning the node is blocked
+     *
+     * @return array of size height x width
+     */
+    public boolean[][] toArray() {
+        boolean[][] array = new boolean[height][width];
+        forEachBlocked(id -> array[id / width][id % width] = true);
+        return array;
+    }
+
+    private void clearUnusedBits() {
+        int used = (int) ((long) width * height % WORD_BITS);
+        if (used != 0) {
+            words[words.length - 1] &= ALL_BITS >>> (WORD_BITS - used);
+        }
+    }
+
+    private void checkBounds(int x, int y) {
+        if (!isInBounds(x, y)) {
+            throw new IllegalArgumentException(String.format("Node x: %d, y: %d is out of bounds", x, y));
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int size() {
+        return width * height;
+    }
+
+    public long getVersion() {
+        if (modified) {
+            version = nextVersion();
+            modified = false;
+        }
+        return version;
+    }
+}
@@ -0,0 +1,48 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * A start and destination node to find the shortest path between
+ */
+public final class PathQuery {
+
+    private final Vector2 from;
+    private final Vector2 to;
+
+    /**
+     * PathQuery Constructor
+     *
+     * @param from Starting node coordinates
+     * @param to   Destination node coordinates
+     */
+    public PathQuery(Vector2 from, Vector2 to) {
+        this.from = Objects.requireNonNull(from, "from");
+        this.to = Objects.requireNonNull(to, "to");
+    }
+
+    public Vector2 getFrom() {
+        return from;
+    }
+
+    public Vector2 getTo() {
+        return to;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PathQuery)) return false;
+        PathQuery oQuery = (PathQuery) o;
+        return from.equals(oQuery.from) && to.equals(oQuery.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * from.getX() + from.getY()) + 31 * to.getX() + to.getY();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("from (%s) to (%s)", from, to);
+    }
+}
@@ -0,0 +1,47 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a {@link PathQuery}: the cost and the nodes of the shortest path or no path if the destination can't be
+ * reached
+ */
+public final class PathResult {
+
+    private final PathQuery query;
+    private final int totalCost;
+    /**
+     * Coordinates of the path from the start to the destination node, empty if no path has been found
+     */
+    private final List<Vector2> path;
+
+    /**
+     * PathResult Constructor
+     *
+     * @param query     query the result belongs to
+     * @param totalCost cost of the path or Integer.MAX_VALUE if no path has been found
+     * @param path      coordinates of the path from the start to the destination node
+     */
+    public PathResult(PathQuery query, int totalCost, List<Vector2> path) {
+        this.query = query;
+        this.totalCost = totalCost;
+        this.path = Collections.unmodifiableList(path);
+    }
+
+    public PathQuery getQuery() {
+        return query;
+    }
+
+    public boolean isFound() {
+        return !path.isEmpty();
+    }
+
+    public int getTotalCost() {
+        return totalCost;
+    }
+
+    public List<Vector2> getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,64 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * One problem of a Moving AI scenario file: a path query on a map together with the length of its optimal path
+ */
+public final class ScenarioEntry {
+
+    private final int bucket;
+    private final String map;
+    private final int mapWidth;
+    private final int mapHeight;
+    private final PathQuery query;
+    private final double optimalLength;
+
+    /**
+     * ScenarioEntry Constructor
+     *
+     * @param bucket        difficulty bucket of the problem, problems of a bucket have similar path lengths
+     * @param map           name of the map file
+     * @param mapWidth      Width of the map
+     * @param mapHeight     Height of the map
+     * @param query         start and destination node
+     * @param optimalLength length of the optimal path, straight moves cost 1 and diagonal moves cost sqrt(2)
+     */
+    public ScenarioEntry(int bucket, String map, int mapWidth, int mapHeight, PathQuery query, double optimalLength) {
+        this.bucket = bucket;
+        this.map = Objects.requireNonNull(map, "map");
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.query = Objects.requireNonNull(query, "query");
+        this.optimalLength = optimalLength;
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    public String getMap() {
+        return map;
+    }
+
+    public int getMapWidth() {
+        return mapWidth;
+    }
+
+    public int getMapHeight() {
+        return mapHeight;
+    }
+
+    public PathQuery getQuery() {
+        return query;
+    }
+
+    public double getOptimalLength() {
+        return optimalLength;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s bucket %d %s", map, bucket, query);
+    }
+}
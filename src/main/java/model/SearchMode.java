@@ -0,0 +1,46 @@
+package model;
+
+/**
+ * Strategies to expand a node during a search
+ */
+public enum SearchMode {
+    /**
+     * Adds every walkable neighbour of a node to the open list
+     */
+    ASTAR("A*"),
+    /**
+     * Jump Point Search: skips over nodes on straight and diagonal lines which can be reached equally well from
+     * another path, only the nodes where the path may turn are added to the open list
+     */
+    JPS("Jump Point Search"),
+    /**
+     * Jump Point Search with jump distances precomputed for the whole grid, so a jump is a single table lookup
+     */
+    JPS_PLUS("JPS+"),
+    /**
+     * Runs one A* search from the start node and one from the destination node at the same time until they meet
+     */
+    BIDIRECTIONAL("Bidirectional A*"),
+    /**
+     * Hierarchical A* (HPA*): searches a small graph of the entrances between square clusters of the grid and only
+     * refines the found path inside the clusters it passes, the path may be longer than the shortest one (about 0.5%
+     * on average, up to about 12% for short paths)
+     */
+    HIERARCHICAL("Hierarchical A*"),
+    /**
+     * D* Lite: keeps the search tree between searches and only repairs the nodes affected by changed blocks or a moved
+     * start node
+     */
+    INCREMENTAL("D* Lite");
+
+    private final String displayName;
+
+    SearchMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -1,19 +1,33 @@
 package util;
 
-import gui.controller.MainUIController;
 import model.AstarNode;
+import model.Grid;
+import model.GridSnapshot;
+import model.NodeStore;
+import model.ObstacleMap;
+import model.SearchMode;
 import model.Vector2;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
 
 /**
  * This clas is an implementation of the A* Algorithm which is an extension of the Dijkstra Algorithm. A* finds the
  * short path between two nodes in a graph. In contrast to the Dijkstra Algorithm, it has an additonal cost to
  * calculate: the H Cost, a heuristic which is the distance between the current node and the destination node in this
  * example. For more information: https://en.wikipedia.org/wiki/A*_search_algorithm
+ * <p>
+ * The search doesn't depend on the GUI, its progress can be observed by setting a {@link SearchListener}. Without a
+ * listener the search runs at full speed. The counters of every query are kept in {@link SearchStats} and added to
+ * the {@link SearchMetrics} exposed over JMX, slow queries are recorded as {@link FlightEvents.Search} events.
+ * <p>
+ * An instance is meant to be reused for many queries on the same grid: the per node state of a search is reset in
+ * constant time (see {@link NodeStore}), so a new query neither clears nor allocates anything. A running search stops
+ * when its thread is interrupted.
+ * <p>
+ * Every search pins the version of the grid it started on: on an {@link ObstacleMap} it searches an immutable
+ * {@link GridSnapshot}, so blocks can be edited by another thread while the search runs.
  *
  * @author serturx
  */
@@ -30,31 +44,42 @@ public class AStar {
 
     private static final double H_COST_WEIGHT = 1.01;
     /**
-     * List with all found nodes, the one with the lowest f cost is at the top
+     * Id of a start or destination node which hasn't been set
      */
-    private final PriorityBlockingQueue<AstarNode> openList;
+    private static final int NONE = -1;
     /**
-     * All closed nodes (closed meaning all it's neighbours have been added)
+     * Heap with the ids of all found nodes, the one with the lowest f cost is at the top
      */
-    private final Set<AstarNode> closedSet;
-    private final Set<AstarNode> closedSetUpdate;
+    private final OpenList openList;
     /**
-     * Quadratic Grid containing all nodes
+     * Walkability of the nodes read by the search
      */
-    private final AstarNode[][] grid;
+    private final Grid grid;
+    /**
+     * Blocked nodes of the grid, may be shared with the GUI and the maze generator. Null if the search runs on a read
+     * only grid.
+     */
+    private final ObstacleMap map;
+    /**
+     * Costs and parents of all nodes in the grid
+     */
+    private final NodeStore store;
     /**
      * List containing the best path after it has been calculated
      */
     private final ArrayList<AstarNode> path;
-    private final MainUIController uiController;
     /**
-     * Starting node
+     * Listener notified about the progress of the search
      */
-    private AstarNode from;
+    private SearchListener listener;
     /**
-     * Destination node
+     * Id of the starting node
      */
-    private AstarNode to;
+    private int from;
+    /**
+     * Id of the destination node
+     */
+    private int to;
     /**
      * Total cost of the calculated path
      */
@@ -64,11 +89,61 @@ public class AStar {
      */
     private boolean trackSteps;
     /**
-     * Contains all algorithm steps
+     * Events of the last search, null if steps aren't tracked
      */
-    private ArrayList<String> steps;
+    private SearchTrace trace;
     private boolean allowDiagonal = true;
-    private CountDownLatch waiting;
+    /**
+     * How nodes are expanded
+     */
+    private SearchMode searchMode = SearchMode.ASTAR;
+    /**
+     * Grid the current (or last) search runs on
+     */
+    private Grid searchGrid;
+    private JumpPointSearch jumpPointSearch;
+    /**
+     * Precomputed jump distances for JPS+, built on the first JPS+ search and discarded when a block changes
+     */
+    private JumpTable jumpTable;
+    /**
+     * State of the backward search, created on the first bidirectional search
+     */
+    private BidirectionalSearch bidirectionalSearch;
+    /**
+     * Abstract graph of the grid, created on the first hierarchical search
+     */
+    private HierarchicalSearch hierarchicalSearch;
+    /**
+     * Search tree kept between incremental searches, created on the first incremental search
+     */
+    private IncrementalSearch incrementalSearch;
+    /**
+     * Landmark distances for the ALT heuristic, null if only the octile distance is used
+     */
+    private LandmarkTable landmarks;
+    /**
+     * Landmarks used by the current search, null if there are none or they don't fit the searched grid
+     */
+    private LandmarkTable searchLandmarks;
+    /**
+     * Cache of calculated paths, null if paths aren't cached
+     */
+    private PathCache pathCache;
+    /**
+     * Connected components of the grid, created on the first search. Null if unreachable destinations are only
+     * detected by the search itself.
+     */
+    private ComponentIndex componentIndex;
+    private boolean useComponentIndex = true;
+    /**
+     * Counters of the current (or last) query
+     */
+    private final SearchStats stats = new SearchStats();
+    /**
+     * Totals every query is added to, null if queries aren't reported
+     */
+    private SearchMetrics metrics = SearchMetrics.getGlobal();
 
     /**
      * AStar Constructor
@@ -78,37 +153,35 @@ public class AStar {
      * @param from Starting node coordinates
      * @param to   Destination node coordinates
      */
-    public AStar(int height, int width, Vector2 from, Vector2 to, MainUIController uiController) {
-
-        // Checks whether the given coordinates are in the grid
-        /*if (!from.allInRange(0, height) || !to.allInRange(0, height)) { //TODO change to check height and width
-            throw new IllegalArgumentException("Start or Destination Node out of Bounds");
-        }*/
-
-        this.grid = new AstarNode[height][width];
+    public AStar(int height, int width, Vector2 from, Vector2 to) {
+        this(new ObstacleMap(height, width), from, to);
+    }
 
-        // Fills the array with nodes
-        for (int i = 0; i < this.grid.length; i++) {
-            for (int j = 0; j < this.grid[0].length; j++) {
-                this.grid[i][j] = new AstarNode(new Vector2(j, i));
-            }
-        }
+    /**
+     * Constructor for a search on an existing grid. If the grid is an {@link ObstacleMap} changes to the map are visible
+     * to the search and vice versa, otherwise (e.g. for a {@link GridSnapshot}) blocks can't be set.
+     *
+     * @param grid Blocked nodes of the grid
+     * @param from Starting node coordinates
+     * @param to   Destination node coordinates
+     */
+    public AStar(Grid grid, Vector2 from, Vector2 to) {
+        this.grid = grid;
+        this.map = grid instanceof ObstacleMap ? (ObstacleMap) grid : null;
+        this.store = new NodeStore(grid.getHeight(), grid.getWidth());
 
         // Sets the rest of the members up
-
-        if(to != null && from != null) {
-            this.to = grid[to.getY()][to.getX()];
-            this.from = grid[from.getY()][from.getX()];
+        this.from = NONE;
+        this.to = NONE;
+        if (to != null && from != null) {
+            this.to = toId(to);
+            this.from = toId(from);
         }
         this.path = new ArrayList<>();
-        this.openList =
-                new PriorityBlockingQueue<>(1, Comparator.comparingInt(AstarNode::getFCost).thenComparingInt(AstarNode::getHCost));
-        this.closedSet = ConcurrentHashMap.newKeySet();
-        this.closedSetUpdate = ConcurrentHashMap.newKeySet();
+        this.openList = new OpenList(store.size());
         this.trackSteps = false;
         this.totalCost = Integer.MAX_VALUE;
-        this.uiController = uiController;
-        setStartDestStatus();
+        this.listener = SearchListener.NONE;
     }
 
     /**
@@ -120,10 +193,10 @@ public class AStar {
      * @param to         Destionation node coordinates
      * @param trackSteps Whether to track steps
      */
-    public AStar(int height, int width, Vector2 from, Vector2 to, boolean trackSteps, MainUIController uiController) {
-        this(height, width, from, to, uiController);
+    public AStar(int height, int width, Vector2 from, Vector2 to, boolean trackSteps) {
+        this(height, width, from, to);
         this.trackSteps = trackSteps;
-        this.steps = new ArrayList<>();
+        this.trace = trackSteps ? new SearchTrace(width, height) : null;
     }
 
     public static int getDiagCost() {
@@ -139,188 +212,427 @@ public class AStar {
     }
 
     /**
-     * Calculates the shortest path between the two given nodes
+     * Removes all blocks, the start and destination node and the results of the last search, so the instance can be
+     * used for a new grid of the same size
+     */
+    public void reset() {
+        editableMap().fill(false);
+        if (pathCache != null) {
+            pathCache.clear();
+        }
+        from = NONE;
+        to = NONE;
+        path.clear();
+        openList.clear();
+        store.resetSearch();
+        totalCost = Integer.MAX_VALUE;
+        if (trackSteps) {
+            trace.clear();
+        }
+    }
+
+    /**
+     * Calculates the shortest path between the two given nodes on the current version of the grid. On an
+     * {@link ObstacleMap} this takes a snapshot of the map, which isn't thread safe: it must only be called by the thread
+     * editing the map. To search on another thread, take the snapshot on the editing thread and pass it to
+     * {@link #calcPath(Grid)}.
      */
     public void calcPath() {
+        calcPath(map == null ? grid : map.snapshot());
+    }
 
-        this.from.setFCost(0);
-        this.from.setGCost(0);
-        this.from.setHCost(0);
+    /**
+     * Calculates the shortest path between the two given nodes on the given grid, e.g. on a snapshot taken by the
+     * thread editing the map before the search has been started on another thread
+     *
+     * @param searchGrid grid of the same size to search on, must not change during the search
+     */
+    public void calcPath(Grid searchGrid) {
+        if (searchGrid.getWidth() != store.getWidth() || searchGrid.getHeight() != store.getHeight()) {
+            throw new IllegalArgumentException(
+                    String.format("Grid must be size %dx%d", store.getHeight(), store.getWidth()));
+        }
 
-        boolean found = false;
-        // add the starting node
-        openList.add(from);
+        FlightEvents.Search event = new FlightEvents.Search();
+        event.begin();
+        stats.begin();
+        this.searchGrid = searchGrid;
+        this.searchLandmarks = landmarks != null && landmarks.isValidFor(searchGrid, allowDiagonal) ? landmarks : null;
+        path.clear();
+        totalCost = Integer.MAX_VALUE;
+        if (trackSteps) {
+            trace.clear();
+        }
 
-        // While there are nodes to discover
-        while (!openList.isEmpty()) {
-            if (trackSteps) {
-                updateNodeCostStatus();
-            }
+        if (pathCache != null) {
+            calcPathCached();
+        } else {
+            search();
+        }
 
-            // takes the node with the lower f Cost
-            AstarNode current = openList.poll();
-            closedSet.add(current);
-            closedSetUpdate.add(current);
+        stats.drain(openList);
+        stats.end(!path.isEmpty());
+        if (metrics != null) {
+            metrics.record(stats);
+        }
 
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = searchMode.name();
+            event.width = store.getWidth();
+            event.height = store.getHeight();
+            event.expandedNodes = stats.getExpandedNodes();
+            event.generatedNodes = stats.getGeneratedNodes();
+            event.peakOpenListSize = stats.getPeakOpenListSize();
+            event.pathFound = stats.isPathFound();
+            event.cached = stats.isCached();
+            event.allocated = stats.getAllocatedBytes();
+            event.commit();
+        }
+    }
 
+    /**
+     * Calculates the shortest path with the current search mode
+     */
+    private void search() {
+        if (useComponentIndex && isUnreachable()) {
+            store.resetSearch();
+            openList.clear();
+            stats.setRejected(true);
+            stats.endPhase(SearchStats.Phase.PREPARE);
+            listener.onNoPathFound();
+            return;
+        }
 
-            if (current == null) {
-                throw new NullPointerException("Fatal Error: Null pointer on current node");
+        if (searchMode == SearchMode.BIDIRECTIONAL) {
+            calcPathBidirectional();
+            return;
+        } else if (searchMode == SearchMode.HIERARCHICAL) {
+            calcPathHierarchical();
+            return;
+        } else if (searchMode == SearchMode.INCREMENTAL) {
+            calcPathIncremental();
+            return;
+        }
+
+        store.resetSearch();
+        openList.clear();
+
+        store.setCosts(from, 0, 0);
+
+        if (searchMode == SearchMode.JPS_PLUS
+                && (jumpTable == null || jumpTable.isOutdated(searchGrid, allowDiagonal))) {
+            jumpTable = new JumpTable(searchGrid, allowDiagonal);
+        } else if (searchMode == SearchMode.JPS
+                && (jumpPointSearch == null || jumpPointSearch.getGrid() != searchGrid)) {
+            jumpPointSearch = new JumpPointSearch(searchGrid);
+        }
+        stats.endPhase(SearchStats.Phase.PREPARE);
+
+        boolean found = false;
+        // add the starting node
+        openList.push(from, 0, 0);
+        listener.onNodeOpened(from);
+        if (trackSteps) {
+            trace.opened(from, 0);
+        }
+
+        // While there are nodes to discover and the search hasn't been cancelled
+        while (!openList.isEmpty() && !Thread.currentThread().isInterrupted()) {
+            // takes the node with the lower f Cost
+            int current = openList.poll();
+            store.setClosed(current);
+            listener.onNodeClosed(current);
+            if (trackSteps) {
+                trace.closed(current);
             }
+
             // if the taken node is the destination node, a path has been found
-            if (current.equals(getTo())) {
+            if (current == to) {
 
                 found = true;
-                totalCost = current.getFCost();
-                backTracePath(current);
+                totalCost = store.getGCost(current);
                 break;
 
             } else {
-                // otherwise just add all neighbouring nodes to the open list
-                addNeighbours(current);
-
-                try {
-                    Thread.sleep((long) uiController.getUpdateRate());
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+                // otherwise just add all neighbouring nodes (or jump points) to the open list
+                if (searchMode == SearchMode.ASTAR) {
+                    addNeighbours(current);
+                } else {
+                    addJumpPoints(current);
                 }
+                listener.onNodeExpanded(current);
+            }
+        }
+        stats.endPhase(SearchStats.Phase.SEARCH);
 
-                uiController.updateAstarGrid();
+        if (found) {
+            backTracePath(to);
+            setFinalPathStatus();
+            stats.endPhase(SearchStats.Phase.PATH);
+            listener.onPathFound(path);
+        } else {
+            listener.onNoPathFound();
+        }
+    }
 
-                if (waiting != null) {
-                    try {
-                        waiting.await();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
+    /**
+     * Takes the path from the cache if it has already been calculated on this version of the grid, otherwise calculates
+     * and caches it
+     */
+    private void calcPathCached() {
+        PathCache.CachedPath cached = pathCache.get(from, to, allowDiagonal, searchMode, searchGrid.getVersion());
+        if (cached != null) {
+            stats.setCached(true);
+            stats.endPhase(SearchStats.Phase.PREPARE);
+            for (int id : cached.getPath()) {
+                path.add(new AstarNode(store, id));
             }
+
+            if (path.isEmpty()) {
+                listener.onNoPathFound();
+            } else {
+                totalCost = cached.getCost();
+                setFinalPathStatus();
+                stats.endPhase(SearchStats.Phase.PATH);
+                listener.onPathFound(path);
+            }
+            return;
+        }
+
+        search();
+
+        // a cancelled search doesn't prove that there's no path
+        if (!Thread.currentThread().isInterrupted()) {
+            int[] ids = new int[path.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = path.get(i).getId();
+            }
+            pathCache.put(from, to, allowDiagonal, searchMode, searchGrid.getVersion(), ids, totalCost,
+                    store.getWidth());
+        }
+    }
+
+    /**
+     * Checks whether the start and destination node are in different components of the searched grid
+     *
+     * @return true if there's no path between them
+     */
+    private boolean isUnreachable() {
+        if (componentIndex == null) {
+            componentIndex = new ComponentIndex(store.getWidth(), store.getHeight());
+        }
+        return componentIndex.isUnreachable(searchGrid, allowDiagonal, from, to);
+    }
+
+    /**
+     * Calculates the shortest path by searching from both the start and the destination node
+     */
+    private void calcPathBidirectional() {
+        if (bidirectionalSearch == null) {
+            bidirectionalSearch = new BidirectionalSearch(store);
+        }
+        stats.endPhase(SearchStats.Phase.PREPARE);
+
+        boolean found = bidirectionalSearch.calcPath(searchGrid, from, to, allowDiagonal, listener);
+        stats.endPhase(SearchStats.Phase.SEARCH);
+        bidirectionalSearch.drainStatistics(stats);
+        if (found) {
+            totalCost = bidirectionalSearch.getTotalCost();
+            bidirectionalSearch.backTracePath(path);
+            setFinalPathStatus();
+            stats.endPhase(SearchStats.Phase.PATH);
+            listener.onPathFound(path);
+        } else {
+            listener.onNoPathFound();
+        }
+    }
+
+    /**
+     * Calculates a path on the abstract graph of the clusters and refines it inside every cluster it passes
+     */
+    private void calcPathHierarchical() {
+        if (hierarchicalSearch == null) {
+            hierarchicalSearch = new HierarchicalSearch(store, openList, HierarchicalSearch.DEF_CLUSTER_SIZE);
         }
+        stats.endPhase(SearchStats.Phase.PREPARE);
 
+        boolean found = hierarchicalSearch.calcPath(searchGrid, from, to, allowDiagonal, listener);
+        stats.endPhase(SearchStats.Phase.SEARCH);
         if (found) {
+            hierarchicalSearch.backTracePath(path);
+            totalCost = hierarchicalSearch.getTotalCost();
             setFinalPathStatus();
-            uiController.updateAstarGridPath();
-        } else if (uiController.isAstarRunning()) {
-            System.out.println("\n No Path Found!");
-            uiController.updateAstarGridFailed();
+            stats.endPhase(SearchStats.Phase.PATH);
+            listener.onPathFound(path);
+        } else {
+            listener.onNoPathFound();
+        }
+        // the path is refined inside the clusters while tracing it back
+        hierarchicalSearch.drainStatistics(stats);
+    }
+
+    /**
+     * Calculates the shortest path with D* Lite, only repairing the search tree of the previous search if blocks have
+     * been changed since
+     */
+    private void calcPathIncremental() {
+        if (incrementalSearch == null) {
+            incrementalSearch = new IncrementalSearch(store);
+        }
+        stats.endPhase(SearchStats.Phase.PREPARE);
+
+        boolean found = incrementalSearch.calcPath(searchGrid, from, to, allowDiagonal, listener);
+        stats.endPhase(SearchStats.Phase.SEARCH);
+        incrementalSearch.drainStatistics(stats);
+        if (found) {
+            totalCost = incrementalSearch.getTotalCost();
+            incrementalSearch.backTracePath(path);
+            setFinalPathStatus();
+            stats.endPhase(SearchStats.Phase.PATH);
+            listener.onPathFound(path);
+        } else {
+            listener.onNoPathFound();
         }
     }
 
     /**
      * Adds all neighbouring nodes to the open list
      *
-     * @param current opened node
+     * @param current id of the opened node
      */
-    public void addNeighbours(AstarNode current) {
-        int currentX = current.getX();
-        int currentY = current.getY();
+    private void addNeighbours(int current) {
+        int currentX = store.getX(current);
+        int currentY = store.getY(current);
 
         if (allowDiagonal) {
             for (int i = currentY - 1; i <= currentY + 1; i++) {
-                if (i < 0 || i >= grid.length) {
-                    continue;
-                }
-
                 for (int j = currentX - 1; j <= currentX + 1; j++) {
-                    if (j < 0 || j >= grid[0].length) {
+                    if (!store.isInBounds(j, i) || (currentX == j && currentY == i)) {
                         continue;
                     }
 
-                    if (!(currentX == j && currentY == i)) {
-                        addNeighbourNode(
-                                current, grid[i][j], isDiagonal(current, grid[i][j]) ? DIAG_COST : DEF_COST);
-                    }
+                    addNeighbourNode(current, store.index(j, i), (currentX != j && currentY != i) ? DIAG_COST : DEF_COST);
                 }
             }
         } else {
 
-            if (isInBounds(currentX + 1, currentY)) addNeighbourNode(current, grid[currentY][currentX + 1], DEF_COST);
-            if (isInBounds(currentX - 1, currentY)) addNeighbourNode(current, grid[currentY][currentX - 1], DEF_COST);
-            if (isInBounds(currentX, currentY + 1)) addNeighbourNode(current, grid[currentY + 1][currentX], DEF_COST);
-            if (isInBounds(currentX, currentY - 1)) addNeighbourNode(current, grid[currentY - 1][currentX], DEF_COST);
+            if (store.isInBounds(currentX + 1, currentY)) addNeighbourNode(current, current + 1, DEF_COST);
+            if (store.isInBounds(currentX - 1, currentY)) addNeighbourNode(current, current - 1, DEF_COST);
+            if (store.isInBounds(currentX, currentY + 1)) addNeighbourNode(current, current + store.getWidth(), DEF_COST);
+            if (store.isInBounds(currentX, currentY - 1)) addNeighbourNode(current, current - store.getWidth(), DEF_COST);
 
         }
     }
 
     /**
-     * Traces the path back
+     * Adds the jump points reachable from the opened node to the open list
      *
-     * @param current opened node
+     * @param current id of the opened node
      */
-    private void backTracePath(AstarNode current) {
+    private void addJumpPoints(int current) {
+        int directions = searchMode == SearchMode.JPS_PLUS
+                ? jumpTable.prunedDirections(current, store.getParent(current))
+                : jumpPointSearch.prunedDirections(current, store.getParent(current), allowDiagonal);
+
+        for (int d = 0; d < 8; d++) {
+            if ((directions & (1 << d)) == 0) {
+                continue;
+            }
+
+            int jumpPoint = searchMode == SearchMode.JPS_PLUS
+                    ? jumpTable.jump(current, d, to)
+                    : jumpPointSearch.jump(current, d, to, allowDiagonal);
+
+            if (jumpPoint != JumpPointSearch.NO_JUMP_POINT) {
+                addNeighbourNode(current, jumpPoint, calcMoveCost(current, jumpPoint));
+            }
+        }
+    }
+
+    /**
+     * Calculates the cost of moving between two nodes on a straight or diagonal line
+     *
+     * @param from id of the first node
+     * @param to   id of the second node
+     * @return move cost
+     */
+    private int calcMoveCost(int from, int to) {
+        int dx = Math.abs(store.getX(from) - store.getX(to));
+        int dy = Math.abs(store.getY(from) - store.getY(to));
+        return DEF_COST * (dx + dy) + (DIAG_COST - 2 * DEF_COST) * Math.min(dx, dy);
+    }
 
-        if (current != null) {
-            path.add(current);
-            backTracePath(current.getPrevious());
+    /**
+     * Traces the path back, the nodes skipped by jumps are filled in so the path always consists of adjacent nodes
+     *
+     * @param current id of the opened node
+     */
+    private void backTracePath(int current) {
+        while (current != NodeStore.NO_PARENT) {
+            int previous = store.getParent(current);
+            path.add(new AstarNode(store, current));
+
+            if (previous != NodeStore.NO_PARENT) {
+                int dx = Integer.signum(store.getX(previous) - store.getX(current));
+                int dy = Integer.signum(store.getY(previous) - store.getY(current));
+                int step = dy * store.getWidth() + dx;
+                for (int skipped = current + step; skipped != previous; skipped += step) {
+                    path.add(new AstarNode(store, skipped));
+                }
+            }
+
+            current = previous;
         }
     }
 
     /**
      * Adds a neighbouring node or updates its cost if its already in the list
      *
-     * @param current   opened node
-     * @param neighbour neighbouring node to add
+     * @param current   id of the opened node
+     * @param neighbour id of the neighbouring node to add
      * @param cost      cost of moving from the opened node to the neighouring node
      */
-    public void addNeighbourNode(AstarNode current, AstarNode neighbour, int cost) {
-        if (neighbour.isWalkable() && !closedSet.contains(neighbour)) {
+    private void addNeighbourNode(int current, int neighbour, int cost) {
+        if (searchGrid.isWalkable(neighbour) && !store.isClosed(neighbour)) {
             // if the neighbouring node hasn't been added yet add it and calculate its cost
             // otherwise if the found path to the node is shorter than the previous one,
             // update the cost and set its parent node to the just opened node
-            if (!openList.contains(neighbour) || neighbour.checkShorterPath(current, cost)) {
-                neighbour.setPrevious(current);
-                neighbour.calcAllCosts(to, cost);
-                if (!openList.contains(neighbour)) {
-                    openList.add(neighbour);
+            int gCost = store.getGCost(current) + cost;
+            boolean open = openList.contains(neighbour);
+            if (!open || gCost < store.getGCost(neighbour)) {
+                int hCost = open ? store.getHCost(neighbour) : calcHCost(neighbour);
+                store.setParent(neighbour, current);
+                store.setCosts(neighbour, gCost, hCost);
+                if (open) {
+                    openList.decreaseKey(neighbour, store.getFCost(neighbour), hCost);
+                } else {
+                    openList.push(neighbour, store.getFCost(neighbour), hCost);
+                    listener.onNodeOpened(neighbour);
+                }
+                if (trackSteps) {
+                    if (open) {
+                        trace.updated(neighbour, store.getFCost(neighbour));
+                    } else {
+                        trace.opened(neighbour, store.getFCost(neighbour));
+                    }
                 }
             }
         }
     }
 
-    /**
-     * Checks whether the neighbouring node is diagonal relative to the other node
-     *
-     * @param o1 Node
-     * @param o2 other Node
-     * @return Whether the node are diagonal to eachother
-     */
-    public boolean isDiagonal(AstarNode o1, AstarNode o2) {
-        return Math.abs(o1.getX() - o2.getX()) == 1 && Math.abs(o1.getY() - o2.getY()) == 1;
+    private int calcHCost(int id) {
+        int hCost = AstarNode.calcHCost(store.getX(id), store.getY(id), store.getX(to), store.getY(to));
+        return searchLandmarks == null ? hCost : Math.max(hCost, searchLandmarks.lowerBound(id, to));
     }
 
     /**
-     * Sets the status of all nodes on the path to reflect that the path goes through them and adds it to the steps list
+     * Adds the final path as last step to the trace
      */
     public void setFinalPathStatus() {
-        path.forEach(astarNode -> astarNode.setStatus("~~"));
-
-        setStartDestStatus();
-
         if (trackSteps) {
-            steps.add(this.toString());
+            trace.path(path.stream().mapToInt(AstarNode::getId).toArray());
         }
-
-    }
-
-    /**
-     * Updates all status on found nodes, shows their cost if they haven't been closed yet and adds it to the steps list
-     */
-    public void updateNodeCostStatus() {
-        closedSet.forEach(astarNode -> astarNode.setStatus(String.valueOf(astarNode.getFCost())));
-
-        openList.forEach(astarNode -> astarNode.setStatus(String.valueOf(astarNode.getFCost())));
-
-        setStartDestStatus();
-
-        if (trackSteps) steps.add(this.toString());
-
-    }
-
-    public void setStartDestStatus() {
-        if(to != null)
-            grid[to.getY()][to.getX()].setStatus("FI");
-        if(from != null)
-            grid[from.getY()][from.getX()].setStatus("ST");
     }
 
     /**
@@ -329,19 +641,29 @@ public class AStar {
      * @param v coordinate of the block to set
      */
     public void setBlock(Vector2 v, boolean block) {
-        if (block &&
-                (from != null && (v.getX() == from.getX() && v.getY() == from.getY()) ||
-                (to != null && v.getX() == to.getX() && v.getY() == to.getY()))) {
-            throw new IllegalArgumentException("Node to set as block is either the start or destination node");
-        } else {
-            if (v.getX() >= grid[0].length || v.getY() >= grid.length) {
-                throw new IllegalArgumentException("Node to set as block is out of bounds");
-            }
+        if (!store.isInBounds(v.getX(), v.getY())) {
+            throw new IllegalArgumentException("Node to set as block is out of bounds");
         }
 
-        grid[v.getY()][v.getX()].setWalkable(!block);
-        grid[v.getY()][v.getX()].setStatus(block ? "||" : "  ");
+        int id = toId(v);
+        if (block && (id == from || id == to)) {
+            throw new IllegalArgumentException("Node to set as block is either the start or destination node");
+        }
 
+        long version = editableMap().getVersion();
+        map.setBlocked(id, block);
+        if (pathCache != null) {
+            pathCache.onBlockChanged(id, block, version, map.getVersion());
+        }
+        if (hierarchicalSearch != null) {
+            hierarchicalSearch.onBlockChanged(id, version, map.getVersion());
+        }
+        if (incrementalSearch != null) {
+            incrementalSearch.onBlockChanged(id, version, map.getVersion());
+        }
+        if (componentIndex != null) {
+            componentIndex.onBlockChanged(id, version, map.getVersion());
+        }
     }
 
     /**
@@ -350,22 +672,33 @@ public class AStar {
      * @param amount amount of blocks to add
      */
     public void setRandomBlocks(int amount) {
-        Random r = new Random();
+        setRandomBlocks(amount, new Random());
+    }
 
-        if (amount >= Math.pow(grid.length, 2)) {
+    /**
+     * Sets a given amount of nodes impassable randomly using the given random number generator, so the same seed
+     * always results in the same blocks
+     *
+     * @param amount amount of blocks to add
+     * @param r      random number generator
+     */
+    public void setRandomBlocks(int amount, Random r) {
+        if (amount >= store.size()) {
             throw new IllegalArgumentException("Exception: Amount >= Total Grid Nodes");
         }
 
+        long version = editableMap().getVersion();
         while (amount > 0) {
 
-            int x = r.nextInt(grid.length - 1);
-            int y = r.nextInt(grid.length - 1);
-            if (!(grid[y][x].equals(from) || grid[y][x].equals(to)) && grid[y][x].isWalkable()) {
-                grid[y][x].setWalkable(false);
-                grid[y][x].setStatus("||");
+            int id = r.nextInt(store.size());
+            if (id != from && id != to && map.isWalkable(id)) {
+                map.setBlocked(id, true);
                 amount--;
             }
         }
+        if (pathCache != null) {
+            pathCache.onBlocked(map, version);
+        }
     }
 
     /**
@@ -375,21 +708,46 @@ public class AStar {
      * @param input input array
      */
     public void setBlocks(boolean[][] input) {
-        if (input.length != grid.length || Arrays.stream(input).anyMatch(i -> i.length != grid.length)) {
-            throw new IllegalArgumentException(String.format("Input array must be size %dx%d", grid.length, grid[0].length));
+        if (input.length != grid.getHeight() || Arrays.stream(input).anyMatch(i -> i.length != grid.getWidth())) {
+            throw new IllegalArgumentException(
+                    String.format("Input array must be size %dx%d", grid.getHeight(), grid.getWidth()));
         }
 
-        for (int i = 0; i < input.length; i++) {
-            for (int j = 0; j < input[0].length; j++) {
-                if (input[i][j]) {
-                    setBlock(new Vector2(j, i), true);
-                }
-            }
+        setBlocks(ObstacleMap.of(input));
+    }
+
+    /**
+     * Sets all nodes as blocks which are blocked in the given map, nodes which are already blocked stay blocked
+     *
+     * @param input map of the same size as the grid
+     */
+    public void setBlocks(ObstacleMap input) {
+        if ((from != NONE && input.isBlocked(from)) || (to != NONE && input.isBlocked(to))) {
+            throw new IllegalArgumentException("Node to set as block is either the start or destination node");
+        }
+
+        long version = editableMap().getVersion();
+        map.or(input);
+        if (pathCache != null) {
+            pathCache.onBlocked(map, version);
         }
     }
 
-    private boolean isInBounds(int x, int y) {
-        return (x > 0 && x < grid[0].length && y > 0 && y < grid.length);
+    /**
+     * Returns the status shown for a node in the CLI (exactly 2 chars long)
+     *
+     * @param id id of the node
+     * @param onPath whether the node is part of the calculated path
+     * @param fCost f cost of the node, Integer.MAX_VALUE if it hasn't been found
+     * @return status of the node
+     */
+    private String getStatus(int id, boolean onPath, int fCost) {
+        if (id == from) return "ST";
+        if (id == to) return "FI";
+        if (onPath) return "~~";
+        if (grid.isBlocked(id)) return "||";
+        if (fCost != Integer.MAX_VALUE) return String.valueOf(fCost);
+        return "  ";
     }
 
     /**
@@ -397,11 +755,23 @@ public class AStar {
      */
     @Override
     public String toString() {
+        BitSet onPath = new BitSet(store.size());
+        path.forEach(n -> onPath.set(n.getId()));
+        return render(onPath::get, store::getFCost);
+    }
+
+    /**
+     * Returns a simple visualization of the Grid with the given path and costs
+     *
+     * @param onPath whether a node is part of the path
+     * @param fCost  f cost of a node
+     */
+    private String render(IntPredicate onPath, IntUnaryOperator fCost) {
 
         StringBuilder sb = new StringBuilder();
 
         // Column indeces
-        for (int i = 0; i < grid[0].length; i++) {
+        for (int i = 0; i < store.getWidth(); i++) {
             if (i == 0) {
                 sb.append("      00 ");
             } else {
@@ -415,100 +785,136 @@ public class AStar {
 
         sb.append("\n");
 
-        sb.append("-".repeat(grid[0].length * 3 + 5));
+        sb.append("-".repeat(store.getWidth() * 3 + 5));
 
         sb.append("\n");
 
         // Node prints
-        for (int i = 0; i < grid.length; i++) {
+        for (int i = 0; i < store.getHeight(); i++) {
 
             sb.append(String.format(" %s |", i < 10 ? "0" + i : i));
 
-            for (int j = 0; j < grid[0].length; j++) {
-                String status = grid[i][j].getStatus();
-                sb.append(" ").append(status);
+            for (int j = 0; j < store.getWidth(); j++) {
+                int id = store.index(j, i);
+                sb.append(" ").append(getStatus(id, onPath.test(id), fCost.applyAsInt(id)));
             }
 
             sb.append("\n");
         }
 
-        sb.append("-".repeat(grid[0].length * 3 + 5));
+        sb.append("-".repeat(store.getWidth() * 3 + 5));
 
         return sb.toString();
     }
 
+    /**
+     * @return the map to set blocks on
+     * @throws UnsupportedOperationException if the search runs on a read only grid
+     */
+    private ObstacleMap editableMap() {
+        if (map == null) {
+            throw new UnsupportedOperationException("Blocks can't be set on a read only grid");
+        }
+        return map;
+    }
+
+    private int toId(Vector2 v) {
+        return store.index(v.getX(), v.getY());
+    }
+
     public int getTotalCost() {
         return this.totalCost;
     }
 
-    public AstarNode[][] getGrid() {
-        return this.grid;
+    public NodeStore getNodeStore() {
+        return this.store;
     }
 
-    public AstarNode getFrom() {
-        return this.from;
+    /**
+     * @return the editable map of the grid or null if the search runs on a read only grid
+     */
+    public ObstacleMap getObstacleMap() {
+        return this.map;
     }
 
-    public void setFrom(AstarNode from) {
-        this.from = from;
+    public Grid getGrid() {
+        return this.grid;
     }
 
-    public void setFrom(Vector2 v) {
-        if(from != null)
-            this.from.setStatus("  ");
-        this.from = grid[v.getY()][v.getX()];
-        setStartDestStatus();
+    public AstarNode getFrom() {
+        return from == NONE ? null : new AstarNode(store, from);
     }
 
-    public AstarNode getTo() {
-        return this.to;
+    public void setFrom(Vector2 v) {
+        this.from = toId(v);
     }
 
-    public void setTo(AstarNode to) {
-        this.to = to;
+    public AstarNode getTo() {
+        return to == NONE ? null : new AstarNode(store, to);
     }
 
     public void setTo(Vector2 v) {
-        if(to != null)
-            this.to.setStatus("  ");
-        this.to = grid[v.getY()][v.getX()];
-        setStartDestStatus();
+        this.to = toId(v);
     }
 
+    /**
+     * Renders every recorded step of the last search like {@link #toString()}. Each step is a copy of the whole grid,
+     * so this is only meant for small grids, use {@link #getTrace()} otherwise.
+     *
+     * @return the grid after each step, null if steps aren't tracked
+     */
     public ArrayList<String> getSteps() {
-        return this.steps;
+        if (!trackSteps) {
+            return null;
+        }
+
+        ArrayList<String> steps = new ArrayList<>();
+        SearchTrace.Cursor cursor = trace.cursor();
+        while (cursor.advance(1, null) > 0) {
+            steps.add(render(id -> cursor.getStatus(id) == SearchTrace.PATH, cursor::getFCost));
+        }
+        return steps;
     }
 
-    public void setNode(AstarNode toSet) {
-        grid[toSet.getY()][toSet.getX()] = toSet;
+    /**
+     * @return events of the last search, null if steps aren't tracked
+     */
+    public SearchTrace getTrace() {
+        return trace;
     }
 
     public AstarNode getNode(Vector2 coordinates) {
-        return grid[coordinates.getY()][coordinates.getX()];
+        return new AstarNode(store, toId(coordinates));
     }
 
-    public PriorityBlockingQueue<AstarNode> getOpenList() {
+    public OpenList getOpenList() {
         return openList;
     }
 
     public AstarNode getNode(int x, int y) {
-        return grid[y][x];
+        return new AstarNode(store, store.index(x, y));
     }
 
-    public Set<AstarNode> getClosedSet() {
-        return closedSet;
+    /**
+     * Returns the node with the given id
+     *
+     * @param id cell id (y * width + x)
+     * @return node
+     */
+    public AstarNode getNode(int id) {
+        return new AstarNode(store, id);
     }
 
     public ArrayList<AstarNode> getPath() {
         return path;
     }
 
-    public CountDownLatch getWaiting() {
-        return waiting;
+    public SearchListener getListener() {
+        return listener;
     }
 
-    public void setWaiting(CountDownLatch waiting) {
-        this.waiting = waiting;
+    public void setListener(SearchListener listener) {
+        this.listener = listener == null ? SearchListener.NONE : listener;
     }
 
     public boolean getAllowDiagonal() {
@@ -519,7 +925,85 @@ public class AStar {
         this.allowDiagonal = allowDiagonal;
     }
 
-    public Set<AstarNode> getClosedSetUpdate() {
-        return closedSetUpdate;
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Sets a cache for calculated paths, edits made through this instance only invalidate the affected paths
+     *
+     * @param pathCache cache to use or null to always calculate paths
+     */
+    public void setPathCache(PathCache pathCache) {
+        this.pathCache = pathCache;
+    }
+
+    public boolean isUseComponentIndex() {
+        return useComponentIndex;
+    }
+
+    /**
+     * Sets whether searches first look up the start and destination node in an index of the connected components of
+     * the grid, so a destination which can't be reached is reported without searching. The index is built on the
+     * first search and kept up to date with edits made through this instance.
+     *
+     * @param useComponentIndex whether to look up unreachable destinations before searching
+     */
+    public void setUseComponentIndex(boolean useComponentIndex) {
+        this.useComponentIndex = useComponentIndex;
+        if (!useComponentIndex) {
+            componentIndex = null;
+        }
+    }
+
+    public LandmarkTable getLandmarks() {
+        return landmarks;
+    }
+
+    /**
+     * Sets landmark distances for the ALT heuristic used by the A* and jump point search modes. The table is ignored
+     * by searches on another version of the grid or with another diagonal mode than it has been calculated for.
+     *
+     * @param landmarks landmark distances or null to only use the octile distance
+     */
+    public void setLandmarks(LandmarkTable landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * Sets precomputed jump distances for JPS+, e.g. to share one table between searches on the same immutable grid
+     *
+     * @param jumpTable jump distances of the grid
+     */
+    void setJumpTable(JumpTable jumpTable) {
+        this.jumpTable = jumpTable;
+    }
+
+    /**
+     * @return counters of the last query, reused by the next query
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the totals the counters of every query are added to
+     *
+     * @param metrics totals to add to or null to not report queries
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
     }
 }
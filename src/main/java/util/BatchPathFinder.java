@@ -0,0 +1,205 @@
+package util;
+
+import model.AstarNode;
+import model.GridSnapshot;
+import model.PathQuery;
+import model.PathResult;
+import model.SearchMode;
+import model.Vector2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers many path queries on the same grid in parallel. The grid is an immutable {@link GridSnapshot}, so all
+ * threads read it without synchronization. Every running task borrows its own {@link AStar} as scratch state (node
+ * costs and open list) and hands it back when it's done, so a batch allocates at most one search state per thread
+ * and the states are reused across batches.
+ *
+ * @author serturx
+ */
+public class BatchPathFinder {
+
+    /**
+     * Amount of queries a task answers without splitting up further
+     */
+    private static final int QUERIES_PER_TASK = 16;
+
+    private final GridSnapshot grid;
+    /**
+     * Search states which are currently not used by a task
+     */
+    private final Queue<AStar> idleSearches;
+    /**
+     * Jump tables without and with diagonal moves, built on the first JPS+ batch
+     */
+    private final JumpTable[] jumpTables;
+    private boolean allowDiagonal = true;
+    private SearchMode searchMode = SearchMode.ASTAR;
+
+    /**
+     * BatchPathFinder Constructor
+     *
+     * @param grid grid to search on
+     */
+    public BatchPathFinder(GridSnapshot grid) {
+        this.grid = grid;
+        this.idleSearches = new ConcurrentLinkedQueue<>();
+        this.jumpTables = new JumpTable[2];
+    }
+
+    /**
+     * Finds the shortest paths of all queries using the common fork join pool
+     *
+     * @param queries start and destination nodes
+     * @return one result per query in the same order
+     */
+    public List<PathResult> findPaths(List<PathQuery> queries) {
+        return findPaths(queries, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds the shortest paths of all queries using the given pool
+     *
+     * @param queries start and destination nodes
+     * @param pool    pool running the searches
+     * @return one result per query in the same order
+     */
+    public List<PathResult> findPaths(List<PathQuery> queries, ForkJoinPool pool) {
+        for (PathQuery query : queries) {
+            if (!grid.isInBounds(query.getFrom().getX(), query.getFrom().getY())
+                    || !grid.isInBounds(query.getTo().getX(), query.getTo().getY())) {
+                throw new IllegalArgumentException(String.format("Query %s is out of bounds", query));
+            }
+        }
+
+        PathQuery[] input = queries.toArray(new PathQuery[0]);
+        PathResult[] results = new PathResult[input.length];
+        pool.invoke(new QueryTask(input, results, 0, input.length, allowDiagonal, searchMode));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Answers a single query on the calling thread
+     *
+     * @param query start and destination node
+     * @return the result
+     */
+    public PathResult findPath(PathQuery query) {
+        PathResult[] results = new PathResult[1];
+        new QueryTask(new PathQuery[]{query}, results, 0, 1, allowDiagonal, searchMode).compute();
+        return results[0];
+    }
+
+    private AStar borrowSearch() {
+        AStar search = idleSearches.poll();
+        return search != null ? search : new AStar(grid, null, null);
+    }
+
+    /**
+     * JPS+ jump distances of the grid, shared by all search states as the grid never changes
+     */
+    private synchronized JumpTable getJumpTable(boolean allowDiagonal) {
+        int i = allowDiagonal ? 1 : 0;
+        if (jumpTables[i] == null) {
+            jumpTables[i] = new JumpTable(grid, allowDiagonal);
+        }
+        return jumpTables[i];
+    }
+
+    /**
+     * Runs one query on a borrowed search state and converts the path, which is only valid until the next search
+     */
+    private PathResult calcPath(AStar search, PathQuery query) {
+        if (!grid.isWalkable(query.getFrom().getX(), query.getFrom().getY())
+                || !grid.isWalkable(query.getTo().getX(), query.getTo().getY())) {
+            return new PathResult(query, Integer.MAX_VALUE, new ArrayList<>());
+        }
+
+        search.setFrom(query.getFrom());
+        search.setTo(query.getTo());
+        search.calcPath();
+
+        ArrayList<AstarNode> nodes = search.getPath();
+        List<Vector2> path = new ArrayList<>(nodes.size());
+        // the path of a search starts at the destination
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            path.add(nodes.get(i).getPos());
+        }
+        return new PathResult(query, nodes.isEmpty() ? Integer.MAX_VALUE : search.getTotalCost(), path);
+    }
+
+    /**
+     * Splits the queries in halves until few enough are left, then answers them one after another
+     */
+    private class QueryTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PathQuery[] queries;
+        private final PathResult[] results;
+        private final int start;
+        private final int end;
+        private final boolean allowDiagonal;
+        private final SearchMode searchMode;
+
+        QueryTask(PathQuery[] queries, PathResult[] results, int start, int end, boolean allowDiagonal,
+                  SearchMode searchMode) {
+            this.queries = queries;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.allowDiagonal = allowDiagonal;
+            this.searchMode = searchMode;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > QUERIES_PER_TASK) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new QueryTask(queries, results, start, middle, allowDiagonal, searchMode),
+                        new QueryTask(queries, results, middle, end, allowDiagonal, searchMode));
+                return;
+            }
+
+            AStar search = borrowSearch();
+            try {
+                search.setAllowDiagonal(allowDiagonal);
+                search.setSearchMode(searchMode);
+                if (searchMode == SearchMode.JPS_PLUS) {
+                    search.setJumpTable(getJumpTable(allowDiagonal));
+                }
+                for (int i = start; i < end; i++) {
+                    results[i] = calcPath(search, queries[i]);
+                }
+            } finally {
+                idleSearches.add(search);
+            }
+        }
+    }
+
+    public GridSnapshot getGrid() {
+        return grid;
+    }
+
+    public boolean getAllowDiagonal() {
+        return allowDiagonal;
+    }
+
+    public void setAllowDiagonal(boolean allowDiagonal) {
+        this.allowDiagonal = allowDiagonal;
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+}
@@ -0,0 +1,197 @@
+package util;
+
+import model.AstarNode;
+import model.Grid;
+import model.NodeStore;
+
+import java.util.List;
+
+/**
+ * Bidirectional A*: one search grows from the start node towards the destination node, a second one from the
+ * destination node back towards the start node, always expanding the side with the smaller open list. Whenever a node
+ * is reached by both searches the combined cost is a candidate for the shortest path.
+ * <p>
+ * Both sides use the average of the two heuristics as potential (Ikeda et al., 1994): the forward search orders its
+ * nodes by g + (h(v, to) - h(v, from)) / 2, the backward search by g + (h(v, from) - h(v, to)) / 2. As the potentials
+ * of both sides add up to zero, the keys of a node in both open lists add up to the cost of the path through it, so
+ * the search can stop as soon as the lowest keys of both open lists add up to the best candidate. The keys are stored
+ * doubled to stay integers.
+ *
+ * @author serturx
+ */
+class BidirectionalSearch {
+
+    /**
+     * Grid the current search runs on
+     */
+    private Grid map;
+    /**
+     * Costs of the forward search
+     */
+    private final NodeStore forwardStore;
+    /**
+     * Costs of the backward search
+     */
+    private final NodeStore backwardStore;
+    private final OpenList forwardOpenList;
+    private final OpenList backwardOpenList;
+    /**
+     * Cost of the best path found so far
+     */
+    private int bestCost;
+    /**
+     * Node where the forward and backward search of the best path meet
+     */
+    private int meetingNode;
+
+    BidirectionalSearch(NodeStore store) {
+        this.forwardStore = store;
+        this.backwardStore = new NodeStore(store.getHeight(), store.getWidth());
+        this.forwardOpenList = new OpenList(store.size());
+        this.backwardOpenList = new OpenList(store.size());
+    }
+
+    /**
+     * Calculates the shortest path between the two given nodes
+     *
+     * @param map           grid to search on
+     * @param from          id of the starting node
+     * @param to            id of the destination node
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @param listener      listener notified about the progress of both searches
+     * @return whether a path has been found
+     */
+    boolean calcPath(Grid map, int from, int to, boolean allowDiagonal, SearchListener listener) {
+        this.map = map;
+        forwardStore.resetSearch();
+        backwardStore.resetSearch();
+        forwardOpenList.clear();
+        backwardOpenList.clear();
+        bestCost = Integer.MAX_VALUE;
+        meetingNode = NodeStore.NO_PARENT;
+
+        int potential = AstarNode.calcHCost(forwardStore.getX(from), forwardStore.getY(from),
+                forwardStore.getX(to), forwardStore.getY(to));
+        forwardStore.setCosts(from, 0, potential);
+        backwardStore.setCosts(to, 0, potential);
+        forwardOpenList.push(from, potential, potential);
+        backwardOpenList.push(to, potential, potential);
+        listener.onNodeOpened(from);
+        listener.onNodeOpened(to);
+
+        if (from == to) {
+            bestCost = 0;
+            meetingNode = from;
+            return true;
+        }
+
+        while (!forwardOpenList.isEmpty() && !backwardOpenList.isEmpty() && !Thread.currentThread().isInterrupted()) {
+            long forwardMin = forwardStore.getFCost(forwardOpenList.peek());
+            long backwardMin = backwardStore.getFCost(backwardOpenList.peek());
+            if (bestCost != Integer.MAX_VALUE && forwardMin + backwardMin >= 2L * bestCost) {
+                break;
+            }
+
+            if (forwardOpenList.size() <= backwardOpenList.size()) {
+                expand(forwardStore, forwardOpenList, backwardStore, to, from, allowDiagonal, listener);
+            } else {
+                expand(backwardStore, backwardOpenList, forwardStore, from, to, allowDiagonal, listener);
+            }
+        }
+
+        return meetingNode != NodeStore.NO_PARENT && !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Closes the node with the lowest f cost of one side and adds its neighbours to that side's open list
+     *
+     * @param store    costs of the expanded side
+     * @param openList open list of the expanded side
+     * @param other    costs of the opposite side
+     * @param target   id of the node the expanded side searches for
+     * @param source   id of the node the expanded side started at
+     */
+    private void expand(NodeStore store, OpenList openList, NodeStore other, int target, int source,
+                        boolean allowDiagonal, SearchListener listener) {
+        int current = openList.poll();
+        store.setClosed(current);
+        listener.onNodeClosed(current);
+
+        int currentX = store.getX(current);
+        int currentY = store.getY(current);
+
+        for (int i = currentY - 1; i <= currentY + 1; i++) {
+            for (int j = currentX - 1; j <= currentX + 1; j++) {
+                boolean diagonal = currentX != j && currentY != i;
+                if (!store.isInBounds(j, i) || (currentX == j && currentY == i) || (diagonal && !allowDiagonal)) {
+                    continue;
+                }
+
+                int neighbour = store.index(j, i);
+                if (map.isBlocked(neighbour) || store.isClosed(neighbour)) {
+                    continue;
+                }
+
+                int gCost = store.getGCost(current) + (diagonal ? AStar.getDiagCost() : AStar.getDefCost());
+                boolean open = openList.contains(neighbour);
+                if (!open || gCost < store.getGCost(neighbour)) {
+                    // the h cost holds the doubled potential of the node
+                    int potential = open ? store.getHCost(neighbour)
+                            : AstarNode.calcHCost(j, i, store.getX(target), store.getY(target))
+                            - AstarNode.calcHCost(j, i, store.getX(source), store.getY(source));
+                    int key = 2 * gCost + potential;
+                    store.setParent(neighbour, current);
+                    store.setGCost(neighbour, gCost);
+                    store.setHCost(neighbour, potential);
+                    store.setFCost(neighbour, key);
+                    if (open) {
+                        openList.decreaseKey(neighbour, key, potential);
+                    } else {
+                        openList.push(neighbour, key, potential);
+                        listener.onNodeOpened(neighbour);
+                    }
+
+                    // the neighbour has been reached by the other side as well
+                    if (other.getGCost(neighbour) != Integer.MAX_VALUE
+                            && gCost + other.getGCost(neighbour) < bestCost) {
+                        bestCost = gCost + other.getGCost(neighbour);
+                        meetingNode = neighbour;
+                    }
+                }
+            }
+        }
+
+        listener.onNodeExpanded(current);
+    }
+
+    /**
+     * Adds the nodes of the found path to the list, starting at the destination node
+     *
+     * @param path list to add the nodes to
+     */
+    void backTracePath(List<AstarNode> path) {
+        int start = path.size();
+        for (int current = meetingNode; current != NodeStore.NO_PARENT; current = backwardStore.getParent(current)) {
+            path.add(start, new AstarNode(forwardStore, current));
+        }
+
+        for (int current = forwardStore.getParent(meetingNode); current != NodeStore.NO_PARENT;
+             current = forwardStore.getParent(current)) {
+            path.add(new AstarNode(forwardStore, current));
+        }
+    }
+
+    /**
+     * Adds the open list operations of both directions to the counters of the query
+     *
+     * @param stats counters of the query
+     */
+    void drainStatistics(SearchStats stats) {
+        stats.drain(forwardOpenList);
+        stats.drain(backwardOpenList);
+    }
+
+    public int getTotalCost() {
+        return bestCost;
+    }
+}
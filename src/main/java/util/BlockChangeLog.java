@@ -0,0 +1,88 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Records the nodes blocked or unblocked through {@link AStar} together with the versions of the grid before and after
+ * each change, so a search state built for one version of the grid can catch up with a later version by only updating
+ * the changed nodes. If the grid has been changed in any other way in between, the chain of versions has a gap and the
+ * state has to be rebuilt.
+ * <p>
+ * Changes are recorded by the thread editing the grid and polled by the search thread, so all methods are
+ * synchronized.
+ *
+ * @author serturx
+ */
+class BlockChangeLog {
+
+    private int[] ids;
+    private long[] oldVersions;
+    private long[] newVersions;
+    private int size;
+
+    BlockChangeLog() {
+        this.ids = new int[16];
+        this.oldVersions = new long[16];
+        this.newVersions = new long[16];
+    }
+
+    /**
+     * Records a changed node
+     *
+     * @param id         id of the changed node
+     * @param oldVersion version of the grid before the change
+     * @param newVersion version of the grid after the change
+     */
+    synchronized void record(int id, long oldVersion, long newVersion) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            oldVersions = Arrays.copyOf(oldVersions, size * 2);
+            newVersions = Arrays.copyOf(newVersions, size * 2);
+        }
+
+        ids[size] = id;
+        oldVersions[size] = oldVersion;
+        newVersions[size] = newVersion;
+        size++;
+    }
+
+    /**
+     * Passes the nodes changed between two versions of the grid to the action and forgets all changes up to the newer
+     * version. Changes made after it are kept for later.
+     *
+     * @param fromVersion version the caller is up to date with
+     * @param toVersion   version the caller wants to catch up with
+     * @param action      consumer of the ids of the changed nodes, only called if all changes have been recorded
+     * @return false if not all changes between the versions have been recorded and the caller has to rebuild its state
+     */
+    synchronized boolean poll(long fromVersion, long toVersion, IntConsumer action) {
+        int first = 0;
+        // changes the caller has already seen
+        while (first < size && newVersions[first] <= fromVersion) {
+            first++;
+        }
+
+        int end = first;
+        long version = fromVersion;
+        boolean complete = true;
+        while (end < size && newVersions[end] <= toVersion) {
+            complete &= oldVersions[end] == version;
+            version = newVersions[end];
+            end++;
+        }
+        complete &= version == toVersion;
+
+        if (complete) {
+            for (int i = first; i < end; i++) {
+                action.accept(ids[i]);
+            }
+        }
+
+        System.arraycopy(ids, end, ids, 0, size - end);
+        System.arraycopy(oldVersions, end, oldVersions, 0, size - end);
+        System.arraycopy(newVersions, end, newVersions, 0, size - end);
+        size -= end;
+        return complete;
+    }
+}
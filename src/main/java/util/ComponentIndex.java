@@ -0,0 +1,288 @@
+package util;
+
+import model.Grid;
+
+import java.util.Arrays;
+
+/**
+ * Index of the connected components of the walkable nodes of a grid, so a search can tell in constant time that its
+ * destination can't be reached instead of exploring every node reachable from the start first.
+ * <p>
+ * The components are kept in a union-find forest, built in a single scan over the rows by joining every walkable node
+ * with its walkable neighbours in the row above and to the left. Unblocking a node joins it with its neighbours.
+ * Blocking a node may split its component, which a union-find can't undo: if the neighbours of the node are still
+ * connected around it nothing changes, otherwise the forest is marked as possibly split. Nodes in different sets are
+ * never connected either way, so only a query for two nodes of the same set rebuilds a possibly split forest.
+ * <p>
+ * Changes are recorded by the thread editing the grid, queries have to be made by the search thread.
+ *
+ * @author serturx
+ */
+class ComponentIndex {
+
+    /**
+     * Offsets of the nodes around a node in clockwise order, starting at the top left corner. Nodes at odd indices
+     * share a side with the node in the middle, nodes at even indices only a corner.
+     */
+    private static final int[] RING_X = {-1, 0, 1, 1, 1, 0, -1, -1};
+    private static final int[] RING_Y = {-1, -1, -1, 0, 1, 1, 1, 0};
+
+    private final int width;
+    private final int height;
+    /**
+     * Element of the forest of each node, -1 for blocked nodes
+     */
+    private final int[] elements;
+    /**
+     * Parent of each element, a root is its own parent
+     */
+    private int[] parents;
+    /**
+     * Amount of elements in the tree of each root
+     */
+    private int[] sizes;
+    private int elementCount;
+    /**
+     * Whether a blocked node may have split a set into several components since the forest has been built
+     */
+    private boolean split;
+    /**
+     * Nodes changed through {@link #onBlockChanged} since the forest has been updated
+     */
+    private final BlockChangeLog changes;
+    private Grid grid;
+    private long version;
+    private boolean allowDiagonal;
+    private long builds;
+
+    /**
+     * ComponentIndex Constructor
+     *
+     * @param width  Width of the grid
+     * @param height Height of the grid
+     */
+    ComponentIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.elements = new int[width * height];
+        this.parents = new int[width * height];
+        this.sizes = new int[width * height];
+        this.changes = new BlockChangeLog();
+        this.version = -1;
+    }
+
+    /**
+     * Records that a node has been blocked or unblocked, so the next query only updates the forest around it
+     *
+     * @param id         id of the changed node
+     * @param oldVersion version of the grid before the change
+     * @param newVersion version of the grid after the change
+     */
+    void onBlockChanged(int id, long oldVersion, long newVersion) {
+        changes.record(id, oldVersion, newVersion);
+    }
+
+    /**
+     * Checks whether there can't be any path between two nodes
+     *
+     * @param grid          grid of the same size the search runs on
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @param from          id of the starting node
+     * @param to            id of the destination node
+     * @return true if the nodes are in different components, false if they are connected or one of them is blocked
+     */
+    boolean isUnreachable(Grid grid, boolean allowDiagonal, int from, int to) {
+        update(grid, allowDiagonal);
+        // a blocked start or destination is left to the search
+        if (elements[from] < 0 || elements[to] < 0) {
+            return false;
+        }
+        if (find(elements[from]) != find(elements[to])) {
+            return true;
+        }
+        if (!split) {
+            return false;
+        }
+
+        build();
+        return find(elements[from]) != find(elements[to]);
+    }
+
+    /**
+     * Brings the forest up to date with the given grid, only updating the recorded changes if possible
+     */
+    private void update(Grid grid, boolean allowDiagonal) {
+        long target = grid.getVersion();
+        boolean rebuild = version == -1 || allowDiagonal != this.allowDiagonal;
+
+        this.grid = grid;
+        this.allowDiagonal = allowDiagonal;
+        boolean complete = changes.poll(version, target, rebuild ? id -> { } : this::apply);
+        if (rebuild || !complete) {
+            build();
+        }
+        version = target;
+    }
+
+    private void build() {
+        elementCount = 0;
+        split = false;
+        builds++;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int id = y * width + x;
+                if (grid.isBlocked(id)) {
+                    elements[id] = -1;
+                    continue;
+                }
+
+                elements[id] = newElement();
+                if (x > 0) {
+                    join(id, id - 1);
+                }
+                if (y > 0) {
+                    join(id, id - width);
+                    if (allowDiagonal && x > 0) {
+                        join(id, id - width - 1);
+                    }
+                    if (allowDiagonal && x < width - 1) {
+                        join(id, id - width + 1);
+                    }
+                }
+            }
+        }
+
+        // links every element to its root, so queries on a freshly built forest take a single step
+        for (int e = 0; e < elementCount; e++) {
+            parents[e] = find(e);
+        }
+    }
+
+    /**
+     * Updates the forest for a node which might have been blocked or unblocked. Neighbours are read from the target
+     * grid, so changes can be applied in any order.
+     */
+    private void apply(int id) {
+        boolean blocked = grid.isBlocked(id);
+        if (blocked == (elements[id] < 0)) {
+            return;
+        }
+
+        int x = id % width;
+        int y = id / width;
+        if (blocked) {
+            // the element stays in the forest, the paths through it now lead around the node or the set is split
+            elements[id] = -1;
+            split |= !staysConnected(x, y);
+            return;
+        }
+
+        // a new element, the old one of the node may still connect other nodes of a split set
+        elements[id] = newElement();
+        for (int i = 0; i < RING_X.length; i++) {
+            int nx = x + RING_X[i];
+            int ny = y + RING_Y[i];
+            if ((allowDiagonal || (i & 1) == 1) && grid.isInBounds(nx, ny)) {
+                join(id, ny * width + nx);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the walkable nodes next to a node are still connected with each other without passing it
+     */
+    private boolean staysConnected(int x, int y) {
+        // component of every node around the node, -1 if it's blocked
+        int[] ring = new int[RING_X.length];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = grid.isWalkable(x + RING_X[i], y + RING_Y[i]) ? i : -1;
+        }
+
+        for (int i = 0; i < ring.length; i++) {
+            joinRing(ring, i, (i + 1) % ring.length);
+            // two nodes sharing a side with the middle node also share a corner
+            if (allowDiagonal && (i & 1) == 1) {
+                joinRing(ring, i, (i + 2) % ring.length);
+            }
+        }
+
+        // only the nodes reachable from the middle node in one move have to stay connected
+        int component = -1;
+        for (int i = 0; i < ring.length; i++) {
+            if (ring[i] < 0 || (!allowDiagonal && (i & 1) == 0)) {
+                continue;
+            }
+            if (component == -1) {
+                component = ring[i];
+            } else if (ring[i] != component) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void joinRing(int[] ring, int a, int b) {
+        if (ring[a] < 0 || ring[b] < 0 || ring[a] == ring[b]) {
+            return;
+        }
+
+        int old = ring[b];
+        for (int i = 0; i < ring.length; i++) {
+            if (ring[i] == old) {
+                ring[i] = ring[a];
+            }
+        }
+    }
+
+    private int newElement() {
+        if (elementCount == parents.length) {
+            parents = Arrays.copyOf(parents, elementCount * 2);
+            sizes = Arrays.copyOf(sizes, elementCount * 2);
+        }
+
+        parents[elementCount] = elementCount;
+        sizes[elementCount] = 1;
+        return elementCount++;
+    }
+
+    /**
+     * Joins the sets of two nodes if both are walkable, the smaller tree is attached to the root of the bigger one
+     */
+    private void join(int a, int b) {
+        if (elements[a] < 0 || elements[b] < 0) {
+            return;
+        }
+
+        int rootA = find(elements[a]);
+        int rootB = find(elements[b]);
+        if (rootA == rootB) {
+            return;
+        }
+        if (sizes[rootA] < sizes[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parents[rootB] = rootA;
+        sizes[rootA] += sizes[rootB];
+    }
+
+    /**
+     * Finds the root of an element, halving the path to it on the way
+     */
+    private int find(int e) {
+        while (parents[e] != e) {
+            parents[e] = parents[parents[e]];
+            e = parents[e];
+        }
+        return e;
+    }
+
+    /**
+     * @return how often the forest has been built from scratch
+     */
+    long getBuildCount() {
+        return builds;
+    }
+}
@@ -0,0 +1,152 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Custom Java Flight Recorder events of the phases which can make the visualizer slow, so a recording shows whether a
+ * latency spike has been caused by a search, by the UI thread applying search results, by results waiting for the UI
+ * thread or by generating a maze or grid.
+ * <p>
+ * Events are only committed while a recording with them enabled is running and they took longer than their threshold
+ * (which can be changed in the recording settings). Without a recording {@code begin()}, {@code commit()} and
+ * {@code shouldCommit()} do nothing and the JIT removes the unused event objects, so fields which are expensive to fill
+ * are only set after {@code shouldCommit()} returned true.
+ *
+ * @author serturx
+ */
+public final class FlightEvents {
+
+    private static final String CATEGORY = "A* Visualizer";
+
+    private FlightEvents() {
+    }
+
+    /**
+     * A single query of an {@link AStar} instance, from the cache lookup to the traced path
+     */
+    @Name("astar.Search")
+    @Label("Search")
+    @Category({CATEGORY, "Search"})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static final class Search extends Event {
+
+        @Label("Search Mode")
+        public String mode;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+
+        @Label("Expanded Nodes")
+        public long expandedNodes;
+
+        @Label("Generated Nodes")
+        public long generatedNodes;
+
+        @Label("Peak Open List Size")
+        public int peakOpenListSize;
+
+        @Label("Path Found")
+        public boolean pathFound;
+
+        @Label("Cached")
+        @Description("Whether the path has been taken from the path cache")
+        public boolean cached;
+
+        @Label("Allocated")
+        @DataAmount
+        public long allocated;
+    }
+
+    /**
+     * A frame of the UI, applying the shown steps of a search to the grid and repainting it
+     */
+    @Name("astar.Frame")
+    @Label("UI Frame")
+    @Category({CATEGORY, "UI"})
+    @Threshold("20 ms")
+    @StackTrace(false)
+    public static final class Frame extends Event {
+
+        @Label("Steps")
+        @Description("Steps of the played back search applied to the grid")
+        public int steps;
+
+        @Label("Apply Duration")
+        @Timespan
+        public long applyDuration;
+
+        @Label("Repaint Duration")
+        @Timespan
+        public long repaintDuration;
+    }
+
+    /**
+     * A result of a background thread waiting in the queue of {@code Platform.runLater} until the UI thread runs it
+     */
+    @Name("astar.UiHandoff")
+    @Label("UI Handoff")
+    @Category({CATEGORY, "UI"})
+    @Threshold("20 ms")
+    @StackTrace(false)
+    public static final class UiHandoff extends Event {
+
+        @Label("Task")
+        public String task;
+    }
+
+    /**
+     * Generation of a maze by a {@link MazeGenerator}
+     */
+    @Name("astar.MazeGeneration")
+    @Label("Maze Generation")
+    @Category({CATEGORY, "Generation"})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static final class MazeGeneration extends Event {
+
+        @Label("Algorithm")
+        public String algorithm;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+
+        @Label("Seed")
+        public long seed;
+    }
+
+    /**
+     * Creation or reset of the search state and the canvas after the grid size has been changed
+     */
+    @Name("astar.GridRebuild")
+    @Label("Grid Rebuild")
+    @Category({CATEGORY, "Generation"})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static final class GridRebuild extends Event {
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+
+        @Label("Reused")
+        @Description("Whether the search state of the previous grid of the same size has been reused")
+        public boolean reused;
+    }
+}
@@ -0,0 +1,750 @@
+package util;
+
+import model.AstarNode;
+import model.Grid;
+import model.NodeStore;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical path-finding A* (HPA*, Botea et al., 2004). The grid is split into square clusters. Where two
+ * neighbouring clusters share a run of walkable cells on their border, one or two pairs of cells form an entrance,
+ * these cells are the nodes of a small abstract graph. Inside every cluster the costs between all its abstract nodes
+ * are precomputed, so a query only searches the abstract graph and then refines the found path segment by segment
+ * with small searches limited to one cluster each.
+ * <p>
+ * Paths found this way are not always optimal, as they only cross cluster borders at entrances. The refined path is
+ * smoothed by replacing detours with straight lines, afterwards paths are about 0.5% longer than the shortest ones on
+ * average, but short paths near cluster borders can still be up to about 12% longer.
+ * If diagonal moves are allowed, single diagonal steps across a border or a corner of four clusters which aren't next
+ * to a straight entrance are entrances too, so a path is found whenever one exists.
+ * <p>
+ * The abstract graph is built on the first search. Blocks set through {@link AStar} only mark the cluster of the
+ * changed node (and the neighbouring cluster if the node lies on a border) as outdated, the next search only rebuilds
+ * these clusters. Any other change of the grid rebuilds all clusters.
+ *
+ * @author serturx
+ */
+class HierarchicalSearch {
+
+    /**
+     * Default width and height of a cluster
+     */
+    static final int DEF_CLUSTER_SIZE = 16;
+    /**
+     * Runs of walkable border cells at least this long get an entrance at both ends instead of one in the middle
+     */
+    private static final int MIN_DOUBLE_ENTRANCE_LENGTH = 6;
+    /**
+     * Distance in clusters up to which smoothing looks for a straight line to a later node of the path
+     */
+    private static final int MAX_SMOOTHING_DISTANCE = 2;
+
+    private final NodeStore store;
+    private final OpenList openList;
+    private final int clusterSize;
+    private final int width;
+    private final int height;
+    private final int clustersX;
+    private final int clustersY;
+    /**
+     * Per cluster: pairs of cells of the entrances to the east, south east, south and south west neighbours, the cell
+     * inside the cluster first
+     */
+    private final int[][] entrances;
+    /**
+     * Per cluster: ids of the abstract nodes in ascending order
+     */
+    private final int[][] clusterNodes;
+    /**
+     * Per cluster: costs between all abstract nodes of the cluster (row major), Integer.MAX_VALUE if a node can't be
+     * reached without leaving the cluster
+     */
+    private final int[][] intraCosts;
+    private final ClusterSearch clusterSearch;
+    /**
+     * Costs from the start node to all nodes of its cluster
+     */
+    private final int[] startCosts;
+    /**
+     * Costs from the destination node to all nodes of its cluster
+     */
+    private final int[] destinationCosts;
+
+    /**
+     * Grid the abstract graph has been built on
+     */
+    private Grid grid;
+    /**
+     * Version of the grid the abstract graph has been built for, -1 if it hasn't been built yet
+     */
+    private long version;
+    private boolean allowDiagonal;
+    /**
+     * Nodes changed through {@link #onBlockChanged} since the abstract graph has been built
+     */
+    private final BlockChangeLog changes;
+    private long rebuiltClusters;
+    private int from;
+    private int to;
+    private int pathCost;
+    /**
+     * Per node: index in the path being smoothed, -1 if it isn't part of it. Created on the first smoothing.
+     */
+    private int[] pathIndex;
+
+    /**
+     * HierarchicalSearch Constructor
+     *
+     * @param store       store the abstract search writes its costs to
+     * @param openList    open list of the abstract search
+     * @param clusterSize width and height of a cluster
+     */
+    HierarchicalSearch(NodeStore store, OpenList openList, int clusterSize) {
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("Cluster size must be at least 2");
+        }
+
+        this.store = store;
+        this.openList = openList;
+        this.clusterSize = clusterSize;
+        this.width = store.getWidth();
+        this.height = store.getHeight();
+        this.clustersX = (width + clusterSize - 1) / clusterSize;
+        this.clustersY = (height + clusterSize - 1) / clusterSize;
+        int clusters = clustersX * clustersY;
+        this.entrances = new int[clusters][];
+        this.clusterNodes = new int[clusters][];
+        this.intraCosts = new int[clusters][];
+        this.clusterSearch = new ClusterSearch(clusterSize);
+        this.startCosts = new int[clusterSize * clusterSize];
+        this.destinationCosts = new int[clusterSize * clusterSize];
+        this.version = -1;
+        this.changes = new BlockChangeLog();
+    }
+
+    /**
+     * Records that a node has been blocked or unblocked, so the next search only rebuilds its cluster
+     *
+     * @param id         id of the changed node
+     * @param oldVersion version of the grid before the change
+     * @param newVersion version of the grid after the change
+     */
+    void onBlockChanged(int id, long oldVersion, long newVersion) {
+        changes.record(id, oldVersion, newVersion);
+    }
+
+    /**
+     * Brings the abstract graph up to date with the given grid, only rebuilding the clusters of recorded changes if
+     * possible
+     */
+    private void update(Grid grid, boolean allowDiagonal) {
+        long target = grid.getVersion();
+        boolean rebuild = version == -1 || allowDiagonal != this.allowDiagonal;
+        IntList changed = new IntList();
+        boolean complete = changes.poll(version, target, changed::add);
+
+        this.grid = grid;
+        this.allowDiagonal = allowDiagonal;
+        if (rebuild || !complete) {
+            buildAll();
+        } else {
+            rebuildAround(changed.toArray());
+        }
+        version = target;
+    }
+
+    private void buildAll() {
+        for (int c = 0; c < clusterNodes.length; c++) {
+            buildEntrances(c);
+        }
+        for (int c = 0; c < clusterNodes.length; c++) {
+            buildCluster(c);
+        }
+    }
+
+    /**
+     * Rebuilds the clusters containing the changed nodes and the neighbouring clusters sharing a border with them
+     */
+    private void rebuildAround(int[] changed) {
+        if (changed.length == 0) {
+            return;
+        }
+
+        boolean[] rebuild = new boolean[clusterNodes.length];
+        for (int id : changed) {
+            int x = id % width;
+            int y = id / width;
+            int cx = x / clusterSize;
+            int cy = y / clusterSize;
+            rebuild[cy * clustersX + cx] = true;
+
+            // a border node can be part of the entrances of this cluster and of its west and north neighbours
+            boolean border = x % clusterSize == 0 || x % clusterSize == clusterSize - 1
+                    || y % clusterSize == 0 || y % clusterSize == clusterSize - 1;
+            if (!border) {
+                continue;
+            }
+            for (int ey = Math.max(cy - 1, 0); ey <= cy; ey++) {
+                for (int ex = Math.max(cx - 1, 0); ex <= Math.min(cx + 1, clustersX - 1); ex++) {
+                    if (ey == cy && ex > cx) {
+                        continue;
+                    }
+                    int c = ey * clustersX + ex;
+                    buildEntrances(c);
+                    // the entrances of a cluster lead to its east, south east, south and south west neighbours
+                    for (int ny = ey; ny <= Math.min(ey + 1, clustersY - 1); ny++) {
+                        for (int nx = Math.max(ex - 1, 0); nx <= Math.min(ex + 1, clustersX - 1); nx++) {
+                            rebuild[ny * clustersX + nx] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int c = 0; c < rebuild.length; c++) {
+            if (rebuild[c]) {
+                buildCluster(c);
+            }
+        }
+    }
+
+    /**
+     * Finds the entrances from a cluster to its east, south and, if diagonal moves are allowed, to its south east and
+     * south west neighbours
+     */
+    private void buildEntrances(int cluster) {
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        int x0 = cx * clusterSize;
+        int y0 = cy * clusterSize;
+        int x1 = Math.min(x0 + clusterSize, width);
+        int y1 = Math.min(y0 + clusterSize, height);
+        IntList pairs = new IntList();
+
+        if (cx < clustersX - 1) {
+            findEntrances(pairs, x1 - 1, y0, 0, 1, y1 - y0, 1);
+        }
+        if (cy < clustersY - 1) {
+            findEntrances(pairs, x0, y1 - 1, 1, 0, x1 - x0, width);
+        }
+        if (allowDiagonal && cy < clustersY - 1) {
+            // paths may cross the corner of four clusters diagonally without touching the other two
+            if (cx < clustersX - 1) {
+                addEntrance(pairs, grid.index(x1 - 1, y1 - 1), grid.index(x1, y1));
+            }
+            if (cx > 0) {
+                addEntrance(pairs, grid.index(x0, y1 - 1), grid.index(x0 - 1, y1));
+            }
+        }
+
+        entrances[cluster] = pairs.toArray();
+    }
+
+    /**
+     * Walks along a border and adds the pair of cells of every entrance. Every maximal run of cells which are walkable
+     * on both sides of the border gets one entrance in the middle or, if it's long, one at both ends. If diagonal moves
+     * are allowed, a diagonal step between two runs gets an entrance too when no run is next to it.
+     *
+     * @param pairs  list to add the entrances to, the cell inside the cluster first
+     * @param x      X Coordinate of the first border cell of the cluster
+     * @param y      Y Coordinate of the first border cell of the cluster
+     * @param dx     step along the border
+     * @param dy     step along the border
+     * @param length length of the border
+     * @param across id offset to the cell on the other side of the border
+     */
+    private void findEntrances(IntList pairs, int x, int y, int dx, int dy, int length, int across) {
+        int step = dy * width + dx;
+        int first = grid.index(x, y);
+        int runStart = -1;
+
+        for (int i = 0; i <= length; i++) {
+            int id = first + i * step;
+            boolean open = i < length && isOpen(id, across);
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                int runEnd = i - 1;
+                if (runEnd - runStart + 1 < MIN_DOUBLE_ENTRANCE_LENGTH) {
+                    int middle = first + (runStart + runEnd) / 2 * step;
+                    pairs.add(middle);
+                    pairs.add(middle + across);
+                } else {
+                    pairs.add(first + runStart * step);
+                    pairs.add(first + runStart * step + across);
+                    pairs.add(first + runEnd * step);
+                    pairs.add(first + runEnd * step + across);
+                }
+                runStart = -1;
+            }
+
+            if (allowDiagonal && i + 1 < length && !open && !isOpen(id + step, across)) {
+                addEntrance(pairs, id, id + step + across);
+                addEntrance(pairs, id + step, id + across);
+            }
+        }
+    }
+
+    /**
+     * Whether the cell and the cell on the other side of the border are walkable
+     */
+    private boolean isOpen(int id, int across) {
+        return grid.isWalkable(id) && grid.isWalkable(id + across);
+    }
+
+    /**
+     * Adds an entrance consisting of a single step if both cells are walkable
+     */
+    private void addEntrance(IntList pairs, int inside, int outside) {
+        if (grid.isWalkable(inside) && grid.isWalkable(outside)) {
+            pairs.add(inside);
+            pairs.add(outside);
+        }
+    }
+
+    /**
+     * Collects the abstract nodes of a cluster from its entrances and the entrances of its neighbours leading into it
+     * and precomputes the costs between them
+     */
+    private void buildCluster(int cluster) {
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        IntList nodes = new IntList();
+        for (int i = 0; i < entrances[cluster].length; i += 2) {
+            nodes.add(entrances[cluster][i]);
+        }
+        // entrances of the west, north west, north and north east neighbours
+        for (int ny = Math.max(cy - 1, 0); ny <= cy; ny++) {
+            for (int nx = Math.max(cx - 1, 0); nx <= Math.min(cx + 1, clustersX - 1); nx++) {
+                int neighbour = ny * clustersX + nx;
+                if (ny == cy && nx >= cx) {
+                    continue;
+                }
+                int[] pairs = entrances[neighbour];
+                for (int i = 1; i < pairs.length; i += 2) {
+                    if (clusterOf(pairs[i]) == cluster) {
+                        nodes.add(pairs[i]);
+                    }
+                }
+            }
+        }
+
+        // a cell can be part of several entrances
+        int[] sorted = nodes.toArray();
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        int[] clusterNodes = Arrays.copyOf(sorted, unique);
+
+        int[] costs = new int[unique * unique];
+        for (int i = 0; i < unique; i++) {
+            clusterSearch.run(clusterNodes[i], -1);
+            for (int j = 0; j < unique; j++) {
+                costs[i * unique + j] = clusterSearch.getCost(clusterNodes[j]);
+            }
+        }
+
+        this.clusterNodes[cluster] = clusterNodes;
+        intraCosts[cluster] = costs;
+        rebuiltClusters++;
+    }
+
+    /**
+     * Calculates a path between the two given nodes
+     *
+     * @param grid          grid to search on
+     * @param from          id of the starting node
+     * @param to            id of the destination node
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @param listener      listener notified about the progress of the abstract search
+     * @return whether a path has been found
+     */
+    boolean calcPath(Grid grid, int from, int to, boolean allowDiagonal, SearchListener listener) {
+        update(grid, allowDiagonal);
+        this.from = from;
+        this.to = to;
+
+        store.resetSearch();
+        openList.clear();
+        if (grid.isBlocked(from) || grid.isBlocked(to)) {
+            listener.onNodeClosed(from);
+            return false;
+        }
+
+        clusterSearch.run(from, -1);
+        clusterSearch.copyCosts(startCosts);
+        clusterSearch.run(to, -1);
+        clusterSearch.copyCosts(destinationCosts);
+
+        int h = calcHCost(from);
+        store.setCosts(from, 0, h);
+        openList.push(from, h, h);
+        listener.onNodeOpened(from);
+
+        while (!openList.isEmpty() && !Thread.currentThread().isInterrupted()) {
+            int current = openList.poll();
+            store.setClosed(current);
+            listener.onNodeClosed(current);
+
+            if (current == to) {
+                return true;
+            }
+
+            expand(current, listener);
+            listener.onNodeExpanded(current);
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds the abstract neighbours of a node to the open list: the nodes of its cluster, the nodes on the other side of
+     * the cluster borders and the destination node if it is in the same cluster
+     */
+    private void expand(int current, SearchListener listener) {
+        int cluster = clusterOf(current);
+        int[] nodes = clusterNodes[cluster];
+        int index = Arrays.binarySearch(nodes, current);
+
+        if (current == from) {
+            for (int node : nodes) {
+                addNode(current, node, startCosts[clusterSearch.localIndex(from, node)], listener);
+            }
+        } else if (index >= 0) {
+            for (int j = 0; j < nodes.length; j++) {
+                addNode(current, nodes[j], intraCosts[cluster][index * nodes.length + j], listener);
+            }
+        }
+
+        if (cluster == clusterOf(to)) {
+            addNode(current, to, destinationCosts[clusterSearch.localIndex(to, current)], listener);
+        }
+
+        if (index >= 0) {
+            int x = current % width;
+            int y = current / width;
+            for (int i = Math.max(y - 1, 0); i <= Math.min(y + 1, height - 1); i++) {
+                for (int j = Math.max(x - 1, 0); j <= Math.min(x + 1, width - 1); j++) {
+                    boolean diagonal = x != j && y != i;
+                    if (!diagonal || allowDiagonal) {
+                        addBorderNode(current, cluster, i * width + j,
+                                diagonal ? AStar.getDiagCost() : AStar.getDefCost(), listener);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a neighbour if it is an abstract node of another cluster
+     */
+    private void addBorderNode(int current, int cluster, int neighbour, int cost, SearchListener listener) {
+        int other = clusterOf(neighbour);
+        if (other != cluster && Arrays.binarySearch(clusterNodes[other], neighbour) >= 0) {
+            addNode(current, neighbour, cost, listener);
+        }
+    }
+
+    private void addNode(int current, int node, int cost, SearchListener listener) {
+        if (cost == Integer.MAX_VALUE || node == current || store.isClosed(node)) {
+            return;
+        }
+
+        int gCost = store.getGCost(current) + cost;
+        boolean open = openList.contains(node);
+        if (!open || gCost < store.getGCost(node)) {
+            int hCost = open ? store.getHCost(node) : calcHCost(node);
+            store.setParent(node, current);
+            store.setCosts(node, gCost, hCost);
+            if (open) {
+                openList.decreaseKey(node, store.getFCost(node), hCost);
+            } else {
+                openList.push(node, store.getFCost(node), hCost);
+                listener.onNodeOpened(node);
+            }
+        }
+    }
+
+    /**
+     * Refines the abstract path, smooths it and adds all nodes of it to the list, starting at the destination node
+     *
+     * @param path list to add the nodes to
+     */
+    void backTracePath(List<AstarNode> path) {
+        IntList refined = new IntList();
+        int current = to;
+        int previous = store.getParent(current);
+
+        while (previous != NodeStore.NO_PARENT) {
+            if (clusterOf(previous) != clusterOf(current)) {
+                // step over a cluster border
+                refined.add(current);
+            } else {
+                clusterSearch.run(previous, current);
+                for (int id = current; id != previous; id = clusterSearch.getParent(id)) {
+                    refined.add(id);
+                }
+            }
+
+            current = previous;
+            previous = store.getParent(current);
+        }
+        refined.add(from);
+
+        for (int id : smooth(refined.toArray())) {
+            path.add(new AstarNode(store, id));
+        }
+    }
+
+    /**
+     * Replaces detours of a refined path by straight lines (the post-processing of Botea et al.). From every node of
+     * the path the search walks in all directions until it hits a blocked node, leaves the grid or has walked
+     * {@link #MAX_SMOOTHING_DISTANCE} clusters. If it reaches a later node of the path at a lower cost than the path
+     * itself, the nodes between are replaced by the line.
+     *
+     * @param ids nodes of the path
+     * @return nodes of the smoothed path
+     */
+    private int[] smooth(int[] ids) {
+        if (pathIndex == null) {
+            pathIndex = new int[width * height];
+            Arrays.fill(pathIndex, -1);
+        }
+        // cost of the path up to every node
+        int[] costs = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            pathIndex[ids[i]] = i;
+            if (i > 0) {
+                costs[i] = costs[i - 1] + (ids[i] % width != ids[i - 1] % width && ids[i] / width != ids[i - 1] / width
+                        ? AStar.getDiagCost() : AStar.getDefCost());
+            }
+        }
+
+        IntList smoothed = new IntList();
+        int maxSteps = MAX_SMOOTHING_DISTANCE * clusterSize;
+        int i = 0;
+        pathCost = 0;
+        while (i < ids.length - 1) {
+            smoothed.add(ids[i]);
+            int x = ids[i] % width;
+            int y = ids[i] / width;
+            int best = i + 1;
+            int bestDx = 0;
+            int bestDy = 0;
+            int bestCost = costs[i + 1] - costs[i];
+
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    boolean diagonal = dx != 0 && dy != 0;
+                    if ((dx == 0 && dy == 0) || (diagonal && !allowDiagonal)) {
+                        continue;
+                    }
+
+                    int stepCost = diagonal ? AStar.getDiagCost() : AStar.getDefCost();
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    for (int steps = 1; steps <= maxSteps && nx >= 0 && nx < width && ny >= 0 && ny < height
+                            && grid.isWalkable(nx, ny); steps++, nx += dx, ny += dy) {
+                        int j = pathIndex[ny * width + nx];
+                        if (j > best && steps * stepCost < costs[j] - costs[i]) {
+                            best = j;
+                            bestDx = dx;
+                            bestDy = dy;
+                            bestCost = steps * stepCost;
+                        }
+                    }
+                }
+            }
+
+            if (bestDx != 0 || bestDy != 0) {
+                // the nodes of the line between the node and the reached node of the path
+                for (int id = ids[i] + bestDy * width + bestDx; id != ids[best]; id += bestDy * width + bestDx) {
+                    smoothed.add(id);
+                }
+            }
+            pathCost += bestCost;
+            i = best;
+        }
+        smoothed.add(ids[ids.length - 1]);
+
+        for (int id : ids) {
+            pathIndex[id] = -1;
+        }
+        return smoothed.toArray();
+    }
+
+    /**
+     * Adds the operations of the searches inside the clusters, both for building and refining, to the counters of the
+     * query. The abstract search uses the open list of the {@link AStar} instance, which counts it itself.
+     *
+     * @param stats counters of the query
+     */
+    void drainStatistics(SearchStats stats) {
+        stats.drain(clusterSearch.localOpenList);
+    }
+
+    /**
+     * @return cost of the path traced back last
+     */
+    int getTotalCost() {
+        return pathCost;
+    }
+
+    private int calcHCost(int id) {
+        return AstarNode.calcHCost(id % width, id / width, to % width, to / width);
+    }
+
+    private int clusterOf(int id) {
+        return (id / width / clusterSize) * clustersX + (id % width) / clusterSize;
+    }
+
+    /**
+     * @return amount of abstract nodes
+     */
+    int getNodeCount() {
+        int count = 0;
+        for (int[] nodes : clusterNodes) {
+            count += nodes == null ? 0 : nodes.length;
+        }
+        return count;
+    }
+
+    /**
+     * @return amount of cluster rebuilds since the search has been created
+     */
+    long getRebuiltClusters() {
+        return rebuiltClusters;
+    }
+
+    int getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * Dijkstra search limited to the cluster of its starting node
+     */
+    private class ClusterSearch {
+
+        private final int[] costs;
+        private final int[] parents;
+        private final OpenList localOpenList;
+        private int x0;
+        private int y0;
+        private int clusterWidth;
+        private int clusterHeight;
+
+        ClusterSearch(int clusterSize) {
+            this.costs = new int[clusterSize * clusterSize];
+            this.parents = new int[clusterSize * clusterSize];
+            this.localOpenList = new OpenList(clusterSize * clusterSize);
+        }
+
+        /**
+         * Calculates the costs from a node to all nodes of its cluster
+         *
+         * @param source id of the starting node
+         * @param target id of a node at which the search may stop or -1 to reach all nodes
+         */
+        void run(int source, int target) {
+            int cx = (source % width) / clusterSize;
+            int cy = (source / width) / clusterSize;
+            x0 = cx * clusterSize;
+            y0 = cy * clusterSize;
+            clusterWidth = Math.min(clusterSize, width - x0);
+            clusterHeight = Math.min(clusterSize, height - y0);
+            Arrays.fill(costs, Integer.MAX_VALUE);
+            localOpenList.clear();
+
+            int start = local(source);
+            int stop = target < 0 ? -1 : local(target);
+            costs[start] = 0;
+            parents[start] = -1;
+            localOpenList.push(start, 0, 0);
+
+            while (!localOpenList.isEmpty()) {
+                int current = localOpenList.poll();
+                if (current == stop) {
+                    return;
+                }
+
+                int lx = current % clusterWidth;
+                int ly = current / clusterWidth;
+                for (int i = ly - 1; i <= ly + 1; i++) {
+                    for (int j = lx - 1; j <= lx + 1; j++) {
+                        boolean diagonal = lx != j && ly != i;
+                        if (i < 0 || i >= clusterHeight || j < 0 || j >= clusterWidth || (lx == j && ly == i)
+                                || (diagonal && !allowDiagonal) || !grid.isWalkable(x0 + j, y0 + i)) {
+                            continue;
+                        }
+
+                        int neighbour = i * clusterWidth + j;
+                        int cost = costs[current] + (diagonal ? AStar.getDiagCost() : AStar.getDefCost());
+                        if (cost < costs[neighbour]) {
+                            boolean open = costs[neighbour] != Integer.MAX_VALUE;
+                            costs[neighbour] = cost;
+                            parents[neighbour] = current;
+                            if (open) {
+                                localOpenList.decreaseKey(neighbour, cost, 0);
+                            } else {
+                                localOpenList.push(neighbour, cost, 0);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private int local(int id) {
+            return (id / width - y0) * clusterWidth + id % width - x0;
+        }
+
+        /**
+         * Returns the index of a node in the cost arrays of a search started in the cluster of another node
+         */
+        int localIndex(int source, int id) {
+            int sx = ((source % width) / clusterSize) * clusterSize;
+            int sy = ((source / width) / clusterSize) * clusterSize;
+            int w = Math.min(clusterSize, width - sx);
+            return (id / width - sy) * w + id % width - sx;
+        }
+
+        int getCost(int id) {
+            return costs[local(id)];
+        }
+
+        int getParent(int id) {
+            int parent = parents[local(id)];
+            return (y0 + parent / clusterWidth) * width + x0 + parent % clusterWidth;
+        }
+
+        void copyCosts(int[] target) {
+            System.arraycopy(costs, 0, target, 0, costs.length);
+        }
+    }
+
+    /**
+     * Growable list of ints
+     */
+    private static class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
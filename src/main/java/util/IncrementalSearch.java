@@ -0,0 +1,362 @@
+package util;
+
+import model.AstarNode;
+import model.Grid;
+import model.NodeStore;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * D* Lite (Koenig and Likhachev, 2002), an incremental version of A* which keeps its search tree between searches.
+ * The search runs backwards from the destination node, so the tree stays valid when the start node moves along the
+ * path. When nodes are blocked or unblocked through {@link AStar}, only the nodes whose distance to the destination
+ * actually changes are repaired by the next search instead of searching the whole grid again.
+ * <p>
+ * Every node has two distance estimates: g, the distance found by the last expansion, and rhs, the best distance over
+ * its neighbours. A node is inconsistent if both differ, only inconsistent nodes are in the open list. Keys are
+ * [min(g, rhs) + h + km, min(g, rhs)], where km grows by the distance the start node has moved so the keys already
+ * in the open list stay valid lower bounds.
+ * <p>
+ * The tree is discarded if the destination node or the diagonal mode changes or if the grid has been changed other
+ * than through {@link AStar#setBlock}.
+ *
+ * @author serturx
+ */
+class IncrementalSearch {
+
+    private static final int INF = Integer.MAX_VALUE;
+
+    /**
+     * Store the found path is written to, so it can be handed out as {@link AstarNode}s
+     */
+    private final NodeStore store;
+    private final int width;
+    private final int height;
+    private final int[] g;
+    private final int[] rhs;
+    /**
+     * Inconsistent nodes ordered by their key, the first key component is stored as f cost and the second one as h cost
+     */
+    private final OpenList openList;
+    /**
+     * Nodes changed through {@link #onBlockChanged} since the last search
+     */
+    private final BlockChangeLog changes;
+
+    private Grid grid;
+    /**
+     * Version of the grid the tree is valid for, -1 if there is no tree yet
+     */
+    private long version;
+    private boolean allowDiagonal;
+    private int start;
+    private int destination;
+    /**
+     * Sum of the distances the start node has moved since the tree has been created
+     */
+    private int km;
+    private SearchListener listener;
+    private int totalCost;
+    /**
+     * Amount of nodes expanded by the last search
+     */
+    private int expandedNodes;
+
+    /**
+     * IncrementalSearch Constructor
+     *
+     * @param store store the found path is written to
+     */
+    IncrementalSearch(NodeStore store) {
+        this.store = store;
+        this.width = store.getWidth();
+        this.height = store.getHeight();
+        this.g = new int[store.size()];
+        this.rhs = new int[store.size()];
+        this.openList = new OpenList(store.size());
+        this.changes = new BlockChangeLog();
+        this.version = -1;
+        this.listener = SearchListener.NONE;
+    }
+
+    /**
+     * Records that a node has been blocked or unblocked, so the next search repairs the tree around it
+     *
+     * @param id         id of the changed node
+     * @param oldVersion version of the grid before the change
+     * @param newVersion version of the grid after the change
+     */
+    void onBlockChanged(int id, long oldVersion, long newVersion) {
+        changes.record(id, oldVersion, newVersion);
+    }
+
+    /**
+     * Calculates a path between the two given nodes, reusing the tree of the previous search if possible
+     *
+     * @param grid          grid to search on
+     * @param from          id of the starting node
+     * @param to            id of the destination node
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @param listener      listener notified about the nodes made consistent
+     * @return whether a path has been found
+     */
+    boolean calcPath(Grid grid, int from, int to, boolean allowDiagonal, SearchListener listener) {
+        this.listener = listener;
+        store.resetSearch();
+        totalCost = INF;
+        expandedNodes = 0;
+
+        long target = grid.getVersion();
+        boolean reuse = version != -1 && to == destination && allowDiagonal == this.allowDiagonal;
+        this.grid = grid;
+        this.allowDiagonal = allowDiagonal;
+        if (!changes.poll(version, target, reuse ? this::onNodeChanged : id -> { }) || !reuse) {
+            initialize(from, to);
+        }
+        version = target;
+
+        if (from != start) {
+            km += calcHCost(start, from);
+            start = from;
+        }
+
+        if (grid.isBlocked(from) || grid.isBlocked(to)) {
+            return false;
+        }
+
+        computeShortestPath();
+        return !Thread.currentThread().isInterrupted() && rhs[start] != INF && tracePath();
+    }
+
+    private void initialize(int from, int to) {
+        Arrays.fill(g, INF);
+        Arrays.fill(rhs, INF);
+        openList.clear();
+        km = 0;
+        start = from;
+        destination = to;
+        rhs[to] = 0;
+        openList.push(to, calcKey(to), 0);
+    }
+
+    /**
+     * Updates the node and its neighbours after it has been blocked or unblocked
+     */
+    private void onNodeChanged(int id) {
+        updateVertex(id);
+        int x = id % width;
+        int y = id / width;
+        for (int i = Math.max(y - 1, 0); i <= Math.min(y + 1, height - 1); i++) {
+            for (int j = Math.max(x - 1, 0); j <= Math.min(x + 1, width - 1); j++) {
+                if ((x != j || y != i) && (allowDiagonal || x == j || y == i)) {
+                    updateVertex(i * width + j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expands inconsistent nodes until the start node is consistent and no node with a lower key is left
+     */
+    private void computeShortestPath() {
+        while (!openList.isEmpty() && !Thread.currentThread().isInterrupted()) {
+            int current = openList.peek();
+            int k1 = openList.peekFCost();
+            int k2 = openList.peekHCost();
+            int startK1 = calcKey(start);
+            int startK2 = Math.min(g[start], rhs[start]);
+            if (!(k1 < startK1 || (k1 == startK1 && k2 < startK2)) && rhs[start] == g[start]) {
+                break;
+            }
+
+            int newK1 = calcKey(current);
+            int newK2 = Math.min(g[current], rhs[current]);
+            if (k1 < newK1 || (k1 == newK1 && k2 < newK2)) {
+                // the start node has moved since the node has been added
+                openList.update(current, newK1, newK2);
+                continue;
+            }
+
+            openList.poll();
+            store.setClosed(current);
+            listener.onNodeClosed(current);
+            expandedNodes++;
+
+            boolean overconsistent = g[current] > rhs[current];
+            int oldG = g[current];
+            if (overconsistent) {
+                // the node got closer to the destination, its neighbours may get closer too
+                g[current] = rhs[current];
+            } else {
+                // underconsistent: the node got further away, neighbours which went through it need a new best
+                g[current] = INF;
+                updateVertex(current);
+            }
+
+            // only moves between two walkable nodes have a cost
+            if (grid.isWalkable(current)) {
+                int x = current % width;
+                int y = current / width;
+                for (int i = Math.max(y - 1, 0); i <= Math.min(y + 1, height - 1); i++) {
+                    for (int j = Math.max(x - 1, 0); j <= Math.min(x + 1, width - 1); j++) {
+                        boolean diagonal = x != j && y != i;
+                        int neighbour = i * width + j;
+                        if ((x == j && y == i) || (diagonal && !allowDiagonal) || !grid.isWalkable(neighbour)) {
+                            continue;
+                        }
+
+                        int cost = diagonal ? AStar.getDiagCost() : AStar.getDefCost();
+                        if (overconsistent) {
+                            if (neighbour != destination && g[current] + cost < rhs[neighbour]) {
+                                rhs[neighbour] = g[current] + cost;
+                                updateOpenList(neighbour);
+                            }
+                        } else if (rhs[neighbour] == oldG + cost) {
+                            updateVertex(neighbour);
+                        }
+                    }
+                }
+            }
+            listener.onNodeExpanded(current);
+        }
+    }
+
+    /**
+     * Recalculates the rhs value of a node and updates its entry in the open list
+     */
+    private void updateVertex(int id) {
+        if (id != destination) {
+            rhs[id] = bestNeighbour(id, true);
+        }
+        updateOpenList(id);
+    }
+
+    /**
+     * Adds an inconsistent node to the open list or updates its key, removes a consistent node from it
+     */
+    private void updateOpenList(int id) {
+        if (g[id] != rhs[id]) {
+            int k1 = calcKey(id);
+            int k2 = Math.min(g[id], rhs[id]);
+            if (openList.contains(id)) {
+                openList.update(id, k1, k2);
+            } else {
+                openList.push(id, k1, k2);
+                listener.onNodeOpened(id);
+            }
+        } else {
+            openList.remove(id);
+        }
+    }
+
+    /**
+     * Finds the neighbour over which a node is closest to the destination
+     *
+     * @param id       id of the node
+     * @param distance whether to return the distance over the best neighbour instead of the neighbour
+     * @return the distance (INF if no neighbour leads to the destination) or the id of the neighbour (-1 if none)
+     */
+    private int bestNeighbour(int id, boolean distance) {
+        int best = INF;
+        int bestId = -1;
+        if (grid.isWalkable(id)) {
+            int x = id % width;
+            int y = id / width;
+            for (int i = Math.max(y - 1, 0); i <= Math.min(y + 1, height - 1); i++) {
+                for (int j = Math.max(x - 1, 0); j <= Math.min(x + 1, width - 1); j++) {
+                    boolean diagonal = x != j && y != i;
+                    int neighbour = i * width + j;
+                    if ((x == j && y == i) || (diagonal && !allowDiagonal) || g[neighbour] == INF
+                            || !grid.isWalkable(neighbour)) {
+                        continue;
+                    }
+
+                    int cost = g[neighbour] + (diagonal ? AStar.getDiagCost() : AStar.getDefCost());
+                    if (cost < best) {
+                        best = cost;
+                        bestId = neighbour;
+                    }
+                }
+            }
+        }
+        return distance ? best : bestId;
+    }
+
+    /**
+     * Follows the best neighbours from the start to the destination node and writes the path to the store
+     *
+     * @return false if the path is interrupted, which only happens if the tree is inconsistent
+     */
+    private boolean tracePath() {
+        int cost = 0;
+        int current = start;
+        store.setCosts(current, 0, 0);
+        for (int steps = 0; current != destination; steps++) {
+            int next = bestNeighbour(current, false);
+            if (next == -1 || steps == store.size()) {
+                return false;
+            }
+
+            boolean diagonal = next % width != current % width && next / width != current / width;
+            cost += diagonal ? AStar.getDiagCost() : AStar.getDefCost();
+            store.setParent(next, current);
+            store.setCosts(next, cost, 0);
+            current = next;
+        }
+
+        totalCost = cost;
+        return true;
+    }
+
+    /**
+     * Adds all nodes of the found path to the list, starting at the destination node
+     *
+     * @param path list to add the nodes to
+     */
+    void backTracePath(List<AstarNode> path) {
+        for (int id = destination; id != NodeStore.NO_PARENT; id = store.getParent(id)) {
+            path.add(new AstarNode(store, id));
+        }
+    }
+
+    /**
+     * First component of the key of a node
+     */
+    private int calcKey(int id) {
+        int min = Math.min(g[id], rhs[id]);
+        return min == INF ? INF : min + calcHCost(start, id) + km;
+    }
+
+    /**
+     * Lowest possible cost of moving between two nodes (octile distance), unweighted so the keys stay consistent
+     */
+    private int calcHCost(int from, int to) {
+        int dx = Math.abs(from % width - to % width);
+        int dy = Math.abs(from / width - to / width);
+        if (!allowDiagonal) {
+            return AStar.getDefCost() * (dx + dy);
+        }
+        return AStar.getDefCost() * (dx + dy) + (AStar.getDiagCost() - 2 * AStar.getDefCost()) * Math.min(dx, dy);
+    }
+
+    /**
+     * Adds the open list operations of the last search to the counters of the query
+     *
+     * @param stats counters of the query
+     */
+    void drainStatistics(SearchStats stats) {
+        stats.drain(openList);
+    }
+
+    int getTotalCost() {
+        return totalCost;
+    }
+
+    /**
+     * @return amount of nodes expanded by the last search, a replan after a small change only expands few nodes
+     */
+    int getExpandedNodes() {
+        return expandedNodes;
+    }
+}
@@ -0,0 +1,174 @@
+package util;
+
+import model.Grid;
+import model.NodeStore;
+
+/**
+ * Successor generation of the Jump Point Search (Harabor and Grastien, 2011). On grids with uniform move costs many
+ * paths between two nodes are symmetric, JPS only follows one of them: it moves in a straight or diagonal line until
+ * it reaches a node where an optimal path may turn (a jump point) and only adds that node to the open list.
+ * <p>
+ * Diagonal moves follow the same rules as the plain A* expansion, i.e. they are allowed as long as the target node is
+ * walkable. Without diagonals horizontal moves are preferred and vertical jumps stop wherever a horizontal jump finds
+ * a jump point.
+ * <p>
+ * Directions are numbered clockwise starting east: 0 E, 1 SE, 2 S, 3 SW, 4 W, 5 NW, 6 N, 7 NE.
+ */
+class JumpPointSearch {
+
+    static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    static final int[] DY = {0, 1, 1, 1, 0, -1, -1, -1};
+    /**
+     * Bitmask of all directions
+     */
+    static final int ALL_DIRECTIONS = 0xFF;
+    /**
+     * Bitmask of the horizontal and vertical directions
+     */
+    static final int STRAIGHT_DIRECTIONS = 0x55;
+    static final int NO_JUMP_POINT = -1;
+
+    private final Grid map;
+
+    JumpPointSearch(Grid map) {
+        this.map = map;
+    }
+
+    /**
+     * Returns the direction index of a move
+     *
+     * @param dx horizontal move (-1, 0 or 1)
+     * @param dy vertical move (-1, 0 or 1)
+     * @return direction index
+     */
+    static int direction(int dx, int dy) {
+        for (int d = 0; d < 8; d++) {
+            if (DX[d] == dx && DY[d] == dy) {
+                return d;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("No direction for dx: %d, dy: %d", dx, dy));
+    }
+
+    /**
+     * Returns the directions in which a node has to be expanded after it has been reached from its parent, all other
+     * neighbours can be reached at least as cheaply without passing the node
+     *
+     * @param id            id of the node
+     * @param parent        id of the parent node or {@link NodeStore#NO_PARENT}
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @return bitmask of the directions to expand
+     */
+    int prunedDirections(int id, int parent, boolean allowDiagonal) {
+        if (parent == NodeStore.NO_PARENT) {
+            return allowDiagonal ? ALL_DIRECTIONS : STRAIGHT_DIRECTIONS;
+        }
+
+        int x = map.getX(id);
+        int y = map.getY(id);
+        int dx = Integer.signum(x - map.getX(parent));
+        int dy = Integer.signum(y - map.getY(parent));
+        int directions = 1 << direction(dx, dy);
+
+        if (allowDiagonal) {
+            if (dx != 0 && dy != 0) {
+                directions |= 1 << direction(dx, 0) | 1 << direction(0, dy);
+                if (!isWalkable(x - dx, y)) directions |= 1 << direction(-dx, dy);
+                if (!isWalkable(x, y - dy)) directions |= 1 << direction(dx, -dy);
+            } else if (dx != 0) {
+                if (!isWalkable(x, y + 1)) directions |= 1 << direction(dx, 1);
+                if (!isWalkable(x, y - 1)) directions |= 1 << direction(dx, -1);
+            } else {
+                if (!isWalkable(x + 1, y)) directions |= 1 << direction(1, dy);
+                if (!isWalkable(x - 1, y)) directions |= 1 << direction(-1, dy);
+            }
+        } else {
+            if (dx != 0) {
+                if (!isWalkable(x - dx, y + 1)) directions |= 1 << direction(0, 1);
+                if (!isWalkable(x - dx, y - 1)) directions |= 1 << direction(0, -1);
+            } else {
+                directions |= 1 << direction(1, 0) | 1 << direction(-1, 0);
+            }
+        }
+
+        return directions;
+    }
+
+    /**
+     * Moves from a node in the given direction until a jump point, the destination or an obstacle is reached
+     *
+     * @param id            id of the node to jump from
+     * @param direction     direction index
+     * @param to            id of the destination node
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @return id of the jump point or {@link #NO_JUMP_POINT} if the jump ran into an obstacle
+     */
+    int jump(int id, int direction, int to, boolean allowDiagonal) {
+        return jump(map.getX(id), map.getY(id), DX[direction], DY[direction], to, allowDiagonal);
+    }
+
+    private int jump(int x, int y, int dx, int dy, int to, boolean allowDiagonal) {
+        while (true) {
+            x += dx;
+            y += dy;
+
+            if (!isWalkable(x, y)) {
+                return NO_JUMP_POINT;
+            }
+
+            int id = map.index(x, y);
+            if (id == to || isJumpPoint(x, y, dx, dy, allowDiagonal)) {
+                return id;
+            }
+
+            if (dx != 0 && dy != 0) {
+                if (jump(x, y, dx, 0, to, true) != NO_JUMP_POINT || jump(x, y, 0, dy, to, true) != NO_JUMP_POINT) {
+                    return id;
+                }
+            } else if (!allowDiagonal && dy != 0) {
+                if (jump(x, y, 1, 0, to, false) != NO_JUMP_POINT || jump(x, y, -1, 0, to, false) != NO_JUMP_POINT) {
+                    return id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a node has a forced neighbour when it's reached by moving in the given direction, i.e. a
+     * neighbour which can't be reached optimally without passing the node
+     *
+     * @param x             X Coordinate of the node
+     * @param y             Y Coordinate of the node
+     * @param dx            horizontal move
+     * @param dy            vertical move
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @return whether the node has a forced neighbour
+     */
+    boolean isJumpPoint(int x, int y, int dx, int dy, boolean allowDiagonal) {
+        if (allowDiagonal) {
+            if (dx != 0 && dy != 0) {
+                return (isWalkable(x - dx, y + dy) && !isWalkable(x - dx, y))
+                        || (isWalkable(x + dx, y - dy) && !isWalkable(x, y - dy));
+            } else if (dx != 0) {
+                return (isWalkable(x + dx, y + 1) && !isWalkable(x, y + 1))
+                        || (isWalkable(x + dx, y - 1) && !isWalkable(x, y - 1));
+            } else {
+                return (isWalkable(x + 1, y + dy) && !isWalkable(x + 1, y))
+                        || (isWalkable(x - 1, y + dy) && !isWalkable(x - 1, y));
+            }
+        }
+
+        // without diagonals only horizontal moves have forced neighbours, vertical jumps check horizontal ones
+        return dx != 0 && ((isWalkable(x, y + 1) && !isWalkable(x - dx, y + 1))
+                || (isWalkable(x, y - 1) && !isWalkable(x - dx, y - 1)));
+    }
+
+    boolean isWalkable(int x, int y) {
+        return map.isWalkable(x, y);
+    }
+
+    Grid getGrid() {
+        return map;
+    }
+}
@@ -0,0 +1,172 @@
+package util;
+
+import model.Grid;
+
+import static util.JumpPointSearch.DX;
+import static util.JumpPointSearch.DY;
+import static util.JumpPointSearch.NO_JUMP_POINT;
+
+/**
+ * Precomputed jump distances for JPS+ (Rabin, 2015). For every node and direction the table holds how far a jump
+ * goes: a positive distance k means the jump ends at a jump point k nodes away, zero or a negative distance -k means
+ * the jump runs into an obstacle after k walkable nodes. The destination node isn't known while the table is built,
+ * it is checked when a jump is looked up.
+ * <p>
+ * The table has to be rebuilt whenever the walkability of a node changes, see {@link #isOutdated(Grid, boolean)}.
+ */
+class JumpTable {
+
+    private final Grid map;
+    private final JumpPointSearch jumpPointSearch;
+    private final boolean allowDiagonal;
+    /**
+     * Version of the map when the table was built
+     */
+    private final long version;
+    /**
+     * Jump distance per direction and node id
+     */
+    private final int[][] distances;
+
+    /**
+     * JumpTable Constructor, precomputes the jump distances of all nodes
+     *
+     * @param map           map containing the walkability of all nodes
+     * @param allowDiagonal whether diagonal moves are allowed
+     */
+    JumpTable(Grid map, boolean allowDiagonal) {
+        this.map = map;
+        this.jumpPointSearch = new JumpPointSearch(map);
+        this.allowDiagonal = allowDiagonal;
+        this.version = map.getVersion();
+        this.distances = new int[8][];
+
+        if (allowDiagonal) {
+            for (int d = 0; d < 8; d += 2) {
+                build(d);
+            }
+            for (int d = 1; d < 8; d += 2) {
+                build(d);
+            }
+        } else {
+            // vertical jumps stop where horizontal ones find a jump point, so horizontal ones have to be built first
+            build(0);
+            build(4);
+            build(2);
+            build(6);
+        }
+    }
+
+    private void build(int direction) {
+        int dx = DX[direction];
+        int dy = DY[direction];
+        int width = map.getWidth();
+        int height = map.getHeight();
+        int[] table = new int[map.size()];
+
+        // the node a jump moves to has to be computed before the node the jump starts from
+        for (int i = 0; i < height; i++) {
+            int y = dy > 0 ? height - 1 - i : i;
+            for (int j = 0; j < width; j++) {
+                int x = dx > 0 ? width - 1 - j : j;
+                int nx = x + dx;
+                int ny = y + dy;
+
+                if (!jumpPointSearch.isWalkable(nx, ny)) {
+                    table[map.index(x, y)] = 0;
+                } else if (isJumpPoint(nx, ny, dx, dy)) {
+                    table[map.index(x, y)] = 1;
+                } else {
+                    int next = table[map.index(nx, ny)];
+                    table[map.index(x, y)] = next > 0 ? next + 1 : next - 1;
+                }
+            }
+        }
+
+        distances[direction] = table;
+    }
+
+    private boolean isJumpPoint(int x, int y, int dx, int dy) {
+        if (jumpPointSearch.isJumpPoint(x, y, dx, dy, allowDiagonal)) {
+            return true;
+        }
+
+        int id = map.index(x, y);
+        if (dx != 0 && dy != 0) {
+            return distances[JumpPointSearch.direction(dx, 0)][id] > 0
+                    || distances[JumpPointSearch.direction(0, dy)][id] > 0;
+        } else if (!allowDiagonal && dy != 0) {
+            return distances[0][id] > 0 || distances[4][id] > 0;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the directions in which a node has to be expanded, see {@link JumpPointSearch#prunedDirections}
+     *
+     * @param id     id of the node
+     * @param parent id of the parent node or {@link model.NodeStore#NO_PARENT}
+     * @return bitmask of the directions to expand
+     */
+    int prunedDirections(int id, int parent) {
+        return jumpPointSearch.prunedDirections(id, parent, allowDiagonal);
+    }
+
+    /**
+     * Looks up the jump from a node in the given direction
+     *
+     * @param id        id of the node to jump from
+     * @param direction direction index
+     * @param to        id of the destination node
+     * @return id of the jump point or {@link JumpPointSearch#NO_JUMP_POINT} if the jump runs into an obstacle
+     */
+    int jump(int id, int direction, int to) {
+        int distance = distances[direction][id];
+        int reach = Math.abs(distance);
+        int dx = DX[direction];
+        int dy = DY[direction];
+        int x = map.getX(id);
+        int y = map.getY(id);
+        int toDx = map.getX(to) - x;
+        int toDy = map.getY(to) - y;
+        int step = dy * map.getWidth() + dx;
+
+        if (dx != 0 && dy != 0) {
+            // destination in the quadrant of the jump: stop in its row or column, the straight jumps from there reach it
+            if (Integer.signum(toDx) == dx && Integer.signum(toDy) == dy) {
+                int steps = Math.min(Math.abs(toDx), Math.abs(toDy));
+                if (steps <= reach) {
+                    return id + steps * step;
+                }
+            }
+        } else {
+            int along = dx != 0 ? toDx : toDy;
+            int across = dx != 0 ? toDy : toDx;
+            int steps = Math.abs(along);
+            if (Integer.signum(along) == dx + dy && steps <= reach) {
+                if (across == 0) {
+                    return to;
+                }
+                // without diagonals a vertical jump stops in the row of the destination, see JumpPointSearch#jump
+                if (!allowDiagonal && dy != 0) {
+                    return id + steps * step;
+                }
+            }
+        }
+
+        return distance > 0 ? id + distance * step : NO_JUMP_POINT;
+    }
+
+    /**
+     * Checks whether the table has to be rebuilt for a search
+     *
+     * @param grid          grid the search runs on
+     * @param allowDiagonal whether the search allows diagonal moves
+     * @return whether the grid has another version or the table was built for other moves
+     */
+    boolean isOutdated(Grid grid, boolean allowDiagonal) {
+        return this.allowDiagonal != allowDiagonal || version != grid.getVersion()
+                || map.getWidth() != grid.getWidth() || map.getHeight() != grid.getHeight();
+    }
+}
@@ -0,0 +1,430 @@
+package util;
+
+import model.Grid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed distances from a few landmark nodes to every node of a grid for the ALT heuristic (A*, landmarks and
+ * triangle inequality, Goldberg and Harrelson, 2005). For every landmark L the triangle inequality gives
+ * d(v, t) >= |d(L, t) - d(L, v)|, the biggest of these bounds is a lower bound of the distance between two nodes
+ * which follows walls, so it is much tighter than the octile distance on mazes and indoor maps.
+ * <p>
+ * Landmarks are spread evenly along the border of the grid (the walkable node closest to each point), as landmarks
+ * behind the start or the destination give the best bounds. The distances of every landmark are calculated by an
+ * independent Dijkstra search over the whole grid, so all landmarks are calculated in parallel. Each landmark stores
+ * one int per node.
+ * <p>
+ * Tables can be saved next to a map and loaded again, a saved table is only used for a grid with the same blocked
+ * nodes. A table is only valid for the version of the grid it has been calculated for, {@link AStar} ignores it once
+ * the grid has changed or when it searches another grid.
+ *
+ * @author serturx
+ */
+public final class LandmarkTable {
+
+    /**
+     * Default amount of landmarks
+     */
+    public static final int DEF_LANDMARK_COUNT = 8;
+    /**
+     * Extension of table files written next to the maps
+     */
+    public static final String FILE_EXTENSION = ".landmarks";
+    /**
+     * "VASL", visual a star landmarks
+     */
+    private static final int MAGIC = 0x5641534C;
+    private static final int FORMAT_VERSION = 1;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    /**
+     * Amount of ints read or written at once
+     */
+    private static final int IO_CHUNK = 1 << 18;
+
+    private final int width;
+    private final int height;
+    private final boolean allowDiagonal;
+    private final long gridHash;
+    /**
+     * Version of the grid the distances have been calculated for
+     */
+    private final long version;
+    private final int[] landmarks;
+    /**
+     * Distances from every landmark to every node, UNREACHABLE for nodes which can't be reached
+     */
+    private final int[][] distances;
+    /**
+     * Last grid found to have the blocked nodes the distances have been calculated for, so the nodes of a grid only
+     * have to be hashed the first time the table is used on it
+     */
+    private volatile Grid verifiedGrid;
+
+    private LandmarkTable(Grid grid, boolean allowDiagonal, long gridHash, int[] landmarks, int[][] distances) {
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.allowDiagonal = allowDiagonal;
+        this.gridHash = gridHash;
+        this.version = grid.getVersion();
+        this.landmarks = landmarks;
+        this.distances = distances;
+        this.verifiedGrid = grid;
+    }
+
+    /**
+     * Calculates the distances of the landmarks in parallel using the common fork join pool
+     *
+     * @param grid          grid to calculate the distances on, must not change during the calculation
+     * @param count         amount of landmarks
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @return the table
+     */
+    public static LandmarkTable compute(Grid grid, int count, boolean allowDiagonal) {
+        return compute(grid, count, allowDiagonal, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Calculates the distances of the landmarks in parallel using the given pool
+     *
+     * @param grid          grid to calculate the distances on, must not change during the calculation
+     * @param count         amount of landmarks
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @param pool          pool running the searches
+     * @return the table
+     */
+    public static LandmarkTable compute(Grid grid, int count, boolean allowDiagonal, ForkJoinPool pool) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Landmark count must be positive");
+        }
+
+        int[] landmarks = selectLandmarks(grid, count);
+        int[][] distances = new int[landmarks.length][];
+        pool.submit(() -> IntStream.range(0, landmarks.length).parallel()
+                .forEach(i -> distances[i] = calcDistances(grid, landmarks[i], allowDiagonal))).join();
+        return new LandmarkTable(grid, allowDiagonal, hash(grid), landmarks, distances);
+    }
+
+    /**
+     * Loads the table saved for a grid or calculates and saves it if there is no table for the grid yet
+     *
+     * @param grid          grid the table is needed for
+     * @param file          file the table is saved in
+     * @param count         amount of landmarks
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @return the table
+     * @throws IOException if the file can't be read or written
+     */
+    public static LandmarkTable loadOrCompute(Grid grid, Path file, int count, boolean allowDiagonal)
+            throws IOException {
+        if (Files.exists(file)) {
+            LandmarkTable table = load(file, grid);
+            // landmarks are selected deterministically, so a table with other landmarks was saved with another count
+            if (table != null && table.allowDiagonal == allowDiagonal
+                    && Arrays.equals(table.landmarks, selectLandmarks(grid, count))) {
+                return table;
+            }
+        }
+
+        LandmarkTable table = compute(grid, count, allowDiagonal);
+        table.save(file);
+        return table;
+    }
+
+    /**
+     * Loads a saved table
+     *
+     * @param file file the table has been saved to
+     * @param grid grid the table is needed for
+     * @return the table or null if it has been calculated for a grid with other blocked nodes
+     * @throws IOException if the file can't be read or isn't a table file
+     */
+    public static LandmarkTable load(Path file, Grid grid) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException(String.format("%s is not a landmark file of version %d", file, FORMAT_VERSION));
+            }
+            int fileWidth = header.getInt();
+            int fileHeight = header.getInt();
+            boolean fileDiagonal = header.getInt() != 0;
+            int count = header.getInt();
+            long fileHash = header.getLong();
+            if (fileWidth != grid.getWidth() || fileHeight != grid.getHeight() || fileHash != hash(grid)) {
+                return null;
+            }
+            if (count < 0 || channel.size() != 32 + 4L * count * (1 + (long) grid.size())) {
+                throw new IOException(String.format("%s is truncated", file));
+            }
+
+            int[] landmarks = new int[count];
+            readInts(channel, landmarks);
+            int[][] distances = new int[count][grid.size()];
+            for (int[] d : distances) {
+                readInts(channel, d);
+            }
+            return new LandmarkTable(grid, fileDiagonal, fileHash, landmarks, distances);
+        }
+    }
+
+    /**
+     * Saves the table, the file is replaced if it exists
+     *
+     * @param file file to save the table to
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path file) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(width).putInt(height)
+                        .putInt(allowDiagonal ? 1 : 0).putInt(landmarks.length).putLong(gridHash);
+                header.flip();
+                writeFully(channel, header);
+                writeInts(channel, landmarks);
+                for (int[] d : distances) {
+                    writeInts(channel, d);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Returns a lower bound of the distance between two nodes
+     *
+     * @param from id of the first node
+     * @param to   id of the second node
+     * @return the biggest difference of the landmark distances of both nodes
+     */
+    public int lowerBound(int from, int to) {
+        int bound = 0;
+        for (int[] d : distances) {
+            int a = d[from];
+            int b = d[to];
+            // a landmark which doesn't reach both nodes says nothing about their distance
+            if (a != UNREACHABLE && b != UNREACHABLE) {
+                bound = Math.max(bound, a > b ? a - b : b - a);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Checks whether the table can be used on a grid, i.e. it has been calculated on a grid of the same size with the
+     * same blocked nodes and the same diagonal mode. Versions are only counted per map, so another grid with the same
+     * version is only accepted if the hash of its nodes matches.
+     *
+     * @param grid          grid to search on
+     * @param allowDiagonal whether the search allows diagonal moves
+     * @return whether the distances of the table are valid for the grid
+     */
+    public boolean isValidFor(Grid grid, boolean allowDiagonal) {
+        if (grid.getWidth() != width || grid.getHeight() != height || grid.getVersion() != version
+                || this.allowDiagonal != allowDiagonal) {
+            return false;
+        }
+        if (grid == verifiedGrid) {
+            return true;
+        }
+        if (hash(grid) != gridHash) {
+            return false;
+        }
+
+        verifiedGrid = grid;
+        return true;
+    }
+
+    /**
+     * Picks walkable nodes spread evenly along the border of the grid
+     */
+    private static int[] selectLandmarks(Grid grid, int count) {
+        int w = grid.getWidth();
+        int h = grid.getHeight();
+        long perimeter = 2L * (w - 1) + 2L * (h - 1);
+        int[] landmarks = new int[count];
+        int found = 0;
+
+        for (int i = 0; i < count; i++) {
+            long p = perimeter == 0 ? 0 : i * perimeter / count;
+            int x;
+            int y;
+            if (p < w - 1) {
+                x = (int) p;
+                y = 0;
+            } else if (p < w - 1 + h - 1) {
+                x = w - 1;
+                y = (int) (p - (w - 1));
+            } else if (p < 2L * (w - 1) + h - 1) {
+                x = (int) (w - 1 - (p - (w - 1) - (h - 1)));
+                y = h - 1;
+            } else {
+                x = 0;
+                y = (int) (h - 1 - (p - 2L * (w - 1) - (h - 1)));
+            }
+
+            int landmark = closestWalkable(grid, x, y);
+            if (landmark >= 0 && Arrays.stream(landmarks, 0, found).noneMatch(l -> l == landmark)) {
+                landmarks[found++] = landmark;
+            }
+        }
+        return Arrays.copyOf(landmarks, found);
+    }
+
+    /**
+     * Searches rings of growing size around a position for a walkable node
+     *
+     * @return id of the node or -1 if the grid has no walkable node
+     */
+    private static int closestWalkable(Grid grid, int x, int y) {
+        int maxRadius = Math.max(grid.getWidth(), grid.getHeight());
+        for (int r = 0; r <= maxRadius; r++) {
+            for (int j = x - r; j <= x + r; j++) {
+                if (grid.isWalkable(j, y - r)) {
+                    return grid.index(j, y - r);
+                }
+                if (grid.isWalkable(j, y + r)) {
+                    return grid.index(j, y + r);
+                }
+            }
+            for (int i = y - r + 1; i < y + r; i++) {
+                if (grid.isWalkable(x - r, i)) {
+                    return grid.index(x - r, i);
+                }
+                if (grid.isWalkable(x + r, i)) {
+                    return grid.index(x + r, i);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Dijkstra search from a landmark over the whole grid, using the same moves as {@link AStar}
+     */
+    private static int[] calcDistances(Grid grid, int landmark, boolean allowDiagonal) {
+        int w = grid.getWidth();
+        int h = grid.getHeight();
+        int[] dist = new int[grid.size()];
+        Arrays.fill(dist, UNREACHABLE);
+        OpenList openList = new OpenList(grid.size());
+        dist[landmark] = 0;
+        openList.push(landmark, 0, 0);
+
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            int x = current % w;
+            int y = current / w;
+            for (int i = Math.max(y - 1, 0); i <= Math.min(y + 1, h - 1); i++) {
+                for (int j = Math.max(x - 1, 0); j <= Math.min(x + 1, w - 1); j++) {
+                    boolean diagonal = x != j && y != i;
+                    int neighbour = i * w + j;
+                    if ((x == j && y == i) || (diagonal && !allowDiagonal) || grid.isBlocked(neighbour)) {
+                        continue;
+                    }
+
+                    int d = dist[current] + (diagonal ? AStar.getDiagCost() : AStar.getDefCost());
+                    if (d < dist[neighbour]) {
+                        if (dist[neighbour] == UNREACHABLE) {
+                            openList.push(neighbour, d, 0);
+                        } else {
+                            openList.decreaseKey(neighbour, d, 0);
+                        }
+                        dist[neighbour] = d;
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Hash of the blocked nodes, to recognize the grid a saved table belongs to
+     */
+    private static long hash(Grid grid) {
+        long hash = 0xcbf29ce484222325L;
+        long word = 0;
+        int size = grid.size();
+        for (int id = 0; id < size; id++) {
+            if (grid.isBlocked(id)) {
+                word |= 1L << id;
+            }
+            if ((id & 63) == 63 || id == size - 1) {
+                hash = (hash ^ word) * 0x100000001b3L;
+                word = 0;
+            }
+        }
+        return hash ^ size;
+    }
+
+    private static void readInts(FileChannel channel, int[] target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Math.min(IO_CHUNK, Math.max(target.length, 1)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int offset = 0; offset < target.length; offset += IO_CHUNK) {
+            int length = Math.min(IO_CHUNK, target.length - offset);
+            buffer.clear().limit(4 * length);
+            readFully(channel, buffer);
+            buffer.flip();
+            buffer.asIntBuffer().get(target, offset, length);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, int[] source) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Math.min(IO_CHUNK, Math.max(source.length, 1)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int offset = 0; offset < source.length; offset += IO_CHUNK) {
+            int length = Math.min(IO_CHUNK, source.length - offset);
+            buffer.clear();
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.put(source, offset, length);
+            buffer.limit(4 * length);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of landmark file");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return ids of the landmarks
+     */
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    public int getCount() {
+        return landmarks.length;
+    }
+
+    public boolean getAllowDiagonal() {
+        return allowDiagonal;
+    }
+}
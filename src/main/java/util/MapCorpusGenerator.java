@@ -0,0 +1,546 @@
+package util;
+
+import model.MappedGrid;
+import model.MazeAlgorithm;
+import model.ObstacleMap;
+import model.PathQuery;
+import model.ScenarioEntry;
+import model.Vector2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a corpus of maps and path queries for repeatable load tests: random obstacles at several densities, mazes
+ * of all {@link MazeAlgorithm}s, rooms connected by corridors and open fields.
+ * <p>
+ * Every map is generated from its own random numbers, seeded by the seed of the corpus and the name of the map, so
+ * the maps can be generated in parallel and the same seed gives the same corpus on every machine, no matter how many
+ * threads are used or how many maps of the other types are generated. Maps are written as tile files (one bit per
+ * node, see {@link MappedGrid}) and all queries into a single Moving AI scenario file, so a corpus can be run with
+ * {@link ScenarioRunner}. The optimal length of each query is calculated by a Dijkstra search with the same moves as
+ * {@link AStar} (straight moves cost 1, diagonal moves sqrt(2) and may cut corners).
+ * <p>
+ * Usage: {@code MapCorpusGenerator <directory> [--size <width>x<height>] [--maps <per type>] [--queries <per map>]
+ * [--seed <seed>] [--no-diagonal] [--threads <count>]}
+ *
+ * @author serturx
+ */
+public class MapCorpusGenerator {
+
+    /**
+     * Name of the scenario file with the queries of all maps
+     */
+    public static final String SCENARIO_FILE = "corpus.scen";
+    /**
+     * Densities of the random obstacle maps
+     */
+    private static final double[] DENSITIES = {0.1, 0.2, 0.3, 0.4};
+    /**
+     * Queries answered by one Dijkstra search from their common start node
+     */
+    private static final int QUERIES_PER_START = 10;
+    /**
+     * Attempts to find a walkable node or a reachable destination before a query is skipped, also the start nodes in a
+     * row without a query after which a map gets fewer queries
+     */
+    private static final int MAX_ATTEMPTS = 1000;
+    private static final int MIN_ROOM_SIZE = 4;
+    private static final int MAX_ROOM_SIZE = 16;
+    private static final double SQRT_2 = Math.sqrt(2);
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Kinds of maps in the corpus
+     */
+    public enum MapType {
+        /**
+         * Nodes blocked at random, like {@link AStar#setRandomBlocks(int)}
+         */
+        RANDOM,
+        MAZE,
+        /**
+         * Rectangular rooms connected by corridors
+         */
+        ROOMS,
+        /**
+         * No blocked nodes at all
+         */
+        OPEN
+    }
+
+    private int width = 512;
+    private int height = 512;
+    private int mapsPerType = 10;
+    private int queriesPerMap = 100;
+    private long seed;
+    private boolean allowDiagonal = true;
+
+    /**
+     * Generates the corpus in parallel using the common fork join pool
+     *
+     * @param directory directory to write the maps and the scenario file to, created if it doesn't exist
+     * @return the queries of all maps in the order of the scenario file
+     * @throws IOException if a file can't be written
+     */
+    public List<ScenarioEntry> generate(Path directory) throws IOException {
+        return generate(directory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates the corpus in parallel using the given pool
+     *
+     * @param directory directory to write the maps and the scenario file to, created if it doesn't exist
+     * @param pool      pool generating the maps
+     * @return the queries of all maps in the order of the scenario file
+     * @throws IOException if a file can't be written
+     */
+    public List<ScenarioEntry> generate(Path directory, ForkJoinPool pool) throws IOException {
+        Files.createDirectories(directory);
+        List<MapSpec> specs = specs();
+
+        List<List<ScenarioEntry>> perMap;
+        try {
+            // the results are collected in the order of the specs, whichever map has been finished first
+            perMap = pool.submit(() -> specs.parallelStream()
+                    .map(spec -> generateMap(spec, directory))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Corpus generation has been interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        List<ScenarioEntry> entries = new ArrayList<>();
+        perMap.forEach(entries::addAll);
+        MovingAiLoader.writeScenarios(directory.resolve(SCENARIO_FILE), entries);
+        return entries;
+    }
+
+    /**
+     * Lists all maps of the corpus in a fixed order
+     */
+    private List<MapSpec> specs() {
+        List<MapSpec> specs = new ArrayList<>();
+        for (double density : DENSITIES) {
+            for (int i = 0; i < mapsPerType; i++) {
+                specs.add(new MapSpec(MapType.RANDOM, String.format(Locale.ROOT, "random-%02d-%04d",
+                        Math.round(density * 100), i), density, null));
+            }
+        }
+        MazeAlgorithm[] algorithms = MazeAlgorithm.values();
+        for (int i = 0; i < mapsPerType; i++) {
+            MazeAlgorithm algorithm = algorithms[i % algorithms.length];
+            specs.add(new MapSpec(MapType.MAZE, String.format(Locale.ROOT, "maze-%s-%04d",
+                    algorithm.name().toLowerCase(Locale.ROOT).replace('_', '-'), i), 0, algorithm));
+        }
+        for (int i = 0; i < mapsPerType; i++) {
+            specs.add(new MapSpec(MapType.ROOMS, String.format(Locale.ROOT, "rooms-%04d", i), 0, null));
+        }
+        for (int i = 0; i < mapsPerType; i++) {
+            specs.add(new MapSpec(MapType.OPEN, String.format(Locale.ROOT, "open-%04d", i), 0, null));
+        }
+        return specs;
+    }
+
+    /**
+     * Generates a map and its queries and writes the map
+     *
+     * @return the queries of the map
+     */
+    private List<ScenarioEntry> generateMap(MapSpec spec, Path directory) {
+        SplittableRandom random = new SplittableRandom(seed + GOLDEN_GAMMA * spec.name.hashCode());
+        ObstacleMap map = new ObstacleMap(height, width);
+        switch (spec.type) {
+            case RANDOM:
+                blockRandom(map, spec.density, random);
+                break;
+            case MAZE:
+                new MazeGenerator(map).generate(spec.algorithm, random.nextLong());
+                break;
+            case ROOMS:
+                buildRooms(map, random);
+                break;
+            default:
+                break;
+        }
+
+        String mapName = spec.name + ".map";
+        try {
+            MappedGrid.write(MovingAiLoader.tileFileOf(directory.resolve(mapName)), height, width, (y, row) -> {
+                for (int x = 0; x < width; x++) {
+                    row[x] = map.isBlocked(y * width + x);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new QueryGenerator(map, allowDiagonal).generate(mapName, queriesPerMap, random);
+    }
+
+    /**
+     * Blocks the given share of the nodes, picked at random
+     */
+    private static void blockRandom(ObstacleMap map, double density, SplittableRandom random) {
+        int amount = (int) Math.round(density * map.size());
+        while (amount > 0) {
+            int id = random.nextInt(map.size());
+            if (map.isWalkable(id)) {
+                map.setBlocked(id, true);
+                amount--;
+            }
+        }
+    }
+
+    /**
+     * Places rooms at random positions where they don't touch another room and connects every room with the one placed
+     * before it by an L-shaped corridor, so all rooms are connected
+     */
+    private static void buildRooms(ObstacleMap map, SplittableRandom random) {
+        map.fill(true);
+        int maxSize = Math.min(MAX_ROOM_SIZE, Math.min(map.getWidth(), map.getHeight()) - 2);
+        if (maxSize < MIN_ROOM_SIZE) {
+            map.clearRect(1, 1, Math.max(1, map.getWidth() - 2), Math.max(1, map.getHeight() - 2));
+            return;
+        }
+
+        // x, y, width and height of every placed room
+        List<int[]> rooms = new ArrayList<>();
+        int attempts = map.size() / (MAX_ROOM_SIZE * MAX_ROOM_SIZE) + 1;
+        for (int i = 0; i < attempts; i++) {
+            int w = MIN_ROOM_SIZE + random.nextInt(maxSize - MIN_ROOM_SIZE + 1);
+            int h = MIN_ROOM_SIZE + random.nextInt(maxSize - MIN_ROOM_SIZE + 1);
+            int x = 1 + random.nextInt(map.getWidth() - w - 1);
+            int y = 1 + random.nextInt(map.getHeight() - h - 1);
+            int[] room = {x, y, w, h};
+            if (rooms.stream().anyMatch(r -> touches(r, room))) {
+                continue;
+            }
+
+            map.clearRect(x, y, w, h);
+            if (!rooms.isEmpty()) {
+                int[] previous = rooms.get(rooms.size() - 1);
+                int fromX = x + w / 2;
+                int fromY = y + h / 2;
+                int toX = previous[0] + previous[2] / 2;
+                int toY = previous[1] + previous[3] / 2;
+                map.clearRect(Math.min(fromX, toX), fromY, Math.abs(fromX - toX) + 1, 1);
+                map.clearRect(toX, Math.min(fromY, toY), 1, Math.abs(fromY - toY) + 1);
+            }
+            rooms.add(room);
+        }
+    }
+
+    /**
+     * @return whether two rooms overlap or have less than one node of wall between them
+     */
+    private static boolean touches(int[] a, int[] b) {
+        return a[0] <= b[0] + b[2] && b[0] <= a[0] + a[2] && a[1] <= b[1] + b[3] && b[1] <= a[1] + a[3];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Sets the size of all maps
+     *
+     * @param width  Width of the maps
+     * @param height Height of the maps
+     */
+    public void setSize(int width, int height) {
+        if (width <= 2 || height <= 2) {
+            throw new IllegalArgumentException("Maps must be bigger than 2x2");
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getMapsPerType() {
+        return mapsPerType;
+    }
+
+    /**
+     * @param mapsPerType amount of maps of each type, random maps are generated this often for every density
+     */
+    public void setMapsPerType(int mapsPerType) {
+        if (mapsPerType < 0) {
+            throw new IllegalArgumentException("Map count must not be negative");
+        }
+        this.mapsPerType = mapsPerType;
+    }
+
+    public int getQueriesPerMap() {
+        return queriesPerMap;
+    }
+
+    public void setQueriesPerMap(int queriesPerMap) {
+        if (queriesPerMap < 0) {
+            throw new IllegalArgumentException("Query count must not be negative");
+        }
+        this.queriesPerMap = queriesPerMap;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public boolean getAllowDiagonal() {
+        return allowDiagonal;
+    }
+
+    /**
+     * @param allowDiagonal whether the optimal lengths of the queries are calculated with diagonal moves
+     */
+    public void setAllowDiagonal(boolean allowDiagonal) {
+        this.allowDiagonal = allowDiagonal;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            printUsage();
+            System.exit(2);
+        }
+
+        MapCorpusGenerator generator = new MapCorpusGenerator();
+        Path directory = Path.of(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--size":
+                        String[] size = args[++i].split("x");
+                        if (size.length != 2) {
+                            throw new IllegalArgumentException("Size must be <width>x<height>");
+                        }
+                        generator.setSize(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+                        break;
+                    case "--maps":
+                        generator.setMapsPerType(Integer.parseInt(args[++i]));
+                        break;
+                    case "--queries":
+                        generator.setQueriesPerMap(Integer.parseInt(args[++i]));
+                        break;
+                    case "--seed":
+                        generator.setSeed(Long.parseLong(args[++i]));
+                        break;
+                    case "--no-diagonal":
+                        generator.setAllowDiagonal(false);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<ScenarioEntry> entries = generator.generate(directory, pool);
+            System.out.printf("Generated %d maps with %d queries in %.1f s%n",
+                    entries.stream().map(ScenarioEntry::getMap).distinct().count(), entries.size(),
+                    (System.nanoTime() - start) / 1e9);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: MapCorpusGenerator <directory> [--size <width>x<height>] [--maps <per type>]"
+                + " [--queries <per map>] [--seed <seed>] [--no-diagonal] [--threads <count>]");
+    }
+
+    /**
+     * A map of the corpus
+     */
+    private static final class MapSpec {
+
+        private final MapType type;
+        private final String name;
+        private final double density;
+        private final MazeAlgorithm algorithm;
+
+        private MapSpec(MapType type, String name, double density, MazeAlgorithm algorithm) {
+            this.type = type;
+            this.name = name;
+            this.density = density;
+            this.algorithm = algorithm;
+        }
+    }
+
+    /**
+     * Picks queries between random walkable nodes of a map and calculates their optimal lengths. Each Dijkstra search
+     * from a start node gives the lengths of several queries starting there.
+     */
+    private static final class QueryGenerator {
+
+        private final ObstacleMap map;
+        private final boolean allowDiagonal;
+        private final double[] distances;
+        private double[] heapKeys;
+        private int[] heapIds;
+        private int heapSize;
+
+        private QueryGenerator(ObstacleMap map, boolean allowDiagonal) {
+            this.map = map;
+            this.allowDiagonal = allowDiagonal;
+            this.distances = new double[map.size()];
+            this.heapKeys = new double[1024];
+            this.heapIds = new int[1024];
+        }
+
+        private List<ScenarioEntry> generate(String mapName, int count, SplittableRandom random) {
+            List<ScenarioEntry> entries = new ArrayList<>();
+            int width = map.getWidth();
+            // start nodes in a row without any reachable destination, e.g. on a map of isolated nodes
+            int failedStarts = 0;
+            while (entries.size() < count && failedStarts < MAX_ATTEMPTS) {
+                int start = randomWalkable(random);
+                if (start < 0) {
+                    break;
+                }
+
+                search(start);
+                int added = 0;
+                for (int attempt = 0; attempt < MAX_ATTEMPTS && added < QUERIES_PER_START
+                        && entries.size() < count; attempt++) {
+                    int destination = random.nextInt(map.size());
+                    if (destination == start || distances[destination] == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+
+                    PathQuery query = new PathQuery(new Vector2(start % width, start / width),
+                            new Vector2(destination % width, destination / width));
+                    double length = distances[destination];
+                    // buckets of the Moving AI scenarios
+                    entries.add(new ScenarioEntry((int) (length / 4), mapName, width, map.getHeight(), query, length));
+                    added++;
+                }
+                failedStarts = added == 0 ? failedStarts + 1 : 0;
+            }
+            if (entries.size() < count) {
+                System.err.printf("Warning: only %d of %d queries found on %s%n", entries.size(), count, mapName);
+            }
+            return entries;
+        }
+
+        private int randomWalkable(SplittableRandom random) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                int id = random.nextInt(map.size());
+                if (map.isWalkable(id)) {
+                    return id;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Calculates the distances of all nodes from the start node
+         */
+        private void search(int start) {
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            distances[start] = 0;
+            heapSize = 0;
+            push(start, 0);
+
+            int width = map.getWidth();
+            while (heapSize > 0) {
+                double distance = heapKeys[0];
+                int current = pop();
+                // an outdated entry of a node which has been reached on a shorter path
+                if (distance > distances[current]) {
+                    continue;
+                }
+
+                int x = current % width;
+                int y = current / width;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if ((dx == 0 && dy == 0) || (!allowDiagonal && dx != 0 && dy != 0)
+                                || !map.isWalkable(x + dx, y + dy)) {
+                            continue;
+                        }
+
+                        int neighbour = current + dy * width + dx;
+                        double next = distance + (dx != 0 && dy != 0 ? SQRT_2 : 1);
+                        if (next < distances[neighbour]) {
+                            distances[neighbour] = next;
+                            push(neighbour, next);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void push(int id, double key) {
+            if (heapSize == heapIds.length) {
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+                heapIds = Arrays.copyOf(heapIds, heapSize * 2);
+            }
+
+            int i = heapSize++;
+            while (i > 0 && heapKeys[(i - 1) / 2] > key) {
+                heapKeys[i] = heapKeys[(i - 1) / 2];
+                heapIds[i] = heapIds[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heapKeys[i] = key;
+            heapIds[i] = id;
+        }
+
+        private int pop() {
+            int top = heapIds[0];
+            double key = heapKeys[--heapSize];
+            int id = heapIds[heapSize];
+
+            int i = 0;
+            while (2 * i + 1 < heapSize) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                    child++;
+                }
+                if (heapKeys[child] >= key) {
+                    break;
+                }
+                heapKeys[i] = heapKeys[child];
+                heapIds[i] = heapIds[child];
+                i = child;
+            }
+            heapKeys[i] = key;
+            heapIds[i] = id;
+            return top;
+        }
+    }
+}
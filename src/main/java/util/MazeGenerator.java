@@ -1,80 +1,439 @@
 package util;
 
+import model.MazeAlgorithm;
+import model.ObstacleMap;
 import model.Vector2;
 
-import java.util.ArrayList;
-import java.util.Stack;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
+/**
+ * Generates perfect mazes into an {@link ObstacleMap}. The cells of the maze lie on odd coordinates, the nodes between
+ * two cells are walls which are removed to connect them and the nodes on even rows and columns in between stay
+ * blocked, as well as the last row and column.
+ * <p>
+ * The algorithms work on cell ids (cy * cells per row + cx) and keep their state in flat arrays and bitsets which are
+ * allocated on the first use and reused by later mazes, so generating a maze allocates nothing per cell. The same seed
+ * always gives the same maze for a grid of the same size.
+ *
+ * @author serturx
+ */
 public class MazeGenerator {
 
-    Vector2 size;
-    Vector2 start;
-    boolean[][] grid;
+    /**
+     * Offsets of the neighbouring cells in the directions right, down, left and up
+     */
+    private static final int[] DX = {1, 0, -1, 0};
+    private static final int[] DY = {0, 1, 0, -1};
+    /**
+     * Direction of a cell without a parent in the backtracker
+     */
+    private static final byte NO_DIRECTION = -1;
+
+    private final ObstacleMap grid;
+    private final int width;
+    private final int cellsX;
+    private final int cellsY;
+    private final int cellCount;
+    private SplittableRandom random;
+    /**
+     * Cells which are already part of the maze
+     */
+    private long[] visited;
+    /**
+     * Cells which are in the frontier of Prim's algorithm
+     */
+    private long[] frontier;
+    /**
+     * Direction to the parent cell (backtracker) or of the last step of the random walk (Wilson) of each cell
+     */
+    private byte[] directions;
+    /**
+     * Shuffled walls (Kruskal) or frontier cells (Prim)
+     */
+    private int[] cells;
+    /**
+     * Parents of the union-find forest (Kruskal)
+     */
+    private int[] parents;
+    /**
+     * Upper bounds of the height of the trees of the union-find forest (Kruskal)
+     */
+    private byte[] ranks;
+    /**
+     * Stack of regions still to divide, four ints per region (recursive division)
+     */
+    private int[] regions;
 
     public MazeGenerator(Vector2 size) {
-        this.size = size;
-        this.grid = new boolean[size.getY()][size.getX()];
+        this(new ObstacleMap(size.getY(), size.getX()));
     }
 
-    public boolean[][] generate() {
-        Random random = new Random();
-        initMaze();
+    /**
+     * Constructor for a generator which writes the maze into an existing map, e.g. the one of an {@link AStar}
+     *
+     * @param grid map to overwrite with the maze
+     */
+    public MazeGenerator(ObstacleMap grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.cellsX = (grid.getWidth() - 1) / 2;
+        this.cellsY = (grid.getHeight() - 1) / 2;
+        this.cellCount = cellsX * cellsY;
+    }
 
-        /*if (size.getX() % 2 != 1 || size.getY() % 2 != 1) {
-            throw new IllegalArgumentException("Maze Size must be uneven");
-        }*/
+    /**
+     * Generates a random maze with the recursive backtracker
+     *
+     * @return the map with the maze
+     */
+    public ObstacleMap generate() {
+        return generate(MazeAlgorithm.RECURSIVE_BACKTRACKER, new SplittableRandom().nextLong());
+    }
 
-        start = new Vector2(1, 1);
+    /**
+     * Generates a maze, overwriting all nodes of the map
+     *
+     * @param algorithm algorithm used to connect the cells
+     * @param seed      seed of the random numbers, the same seed gives the same maze
+     * @return the map with the maze
+     */
+    public ObstacleMap generate(MazeAlgorithm algorithm, long seed) {
+        FlightEvents.MazeGeneration event = new FlightEvents.MazeGeneration();
+        event.begin();
+        generateMaze(algorithm, seed);
 
-        Vector2 current;
-        Vector2 chosen;
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = algorithm.name();
+            event.width = grid.getWidth();
+            event.height = grid.getHeight();
+            event.seed = seed;
+            event.commit();
+        }
+        return grid;
+    }
 
-        ArrayList<Vector2> neighbours;
-        ArrayList<Vector2> visited = new ArrayList<>();
-        Stack<Vector2> stack = new Stack<>();
+    private void generateMaze(MazeAlgorithm algorithm, long seed) {
+        random = new SplittableRandom(seed);
+        if (algorithm == MazeAlgorithm.RECURSIVE_DIVISION) {
+            initOpen();
+        } else {
+            initWalls();
+        }
+        if (cellCount == 0) {
+            return;
+        }
 
-        stack.push(start);
-        visited.add(start);
+        switch (algorithm) {
+            case KRUSKAL:
+                generateKruskal();
+                break;
+            case PRIM:
+                generatePrim();
+                break;
+            case WILSON:
+                generateWilson();
+                break;
+            case RECURSIVE_DIVISION:
+                generateDivision();
+                break;
+            default:
+                generateBacktracker();
+                break;
+        }
+    }
 
-        while(!stack.isEmpty()) {
-            //System.out.println("1");
-            current = stack.pop();
-            if((neighbours = getUnvistedNeighbours(visited, current)) != null) {
-                stack.push(current);
-                chosen = neighbours.get(random.nextInt(neighbours.size()));
-                removeWall(current, chosen);
-                visited.add(chosen);
-                stack.push(chosen);
+    /**
+     * Blocks the walls around every cell
+     */
+    private void initWalls() {
+        // walls on every even row and column as well as the last ones
+        grid.fill(false);
+        for (int i = 0; i < grid.getHeight(); i += 2) {
+            grid.fillRect(0, i, width, 1);
+        }
+        for (int j = 0; j < width; j += 2) {
+            grid.fillRect(j, 0, 1, grid.getHeight());
+        }
+        grid.fillRect(0, grid.getHeight() - 1, width, 1);
+        grid.fillRect(width - 1, 0, 1, grid.getHeight());
+    }
+
+    /**
+     * Connects all cells, only the border and the nodes between four cells stay blocked
+     */
+    private void initOpen() {
+        grid.fill(true);
+        if (cellCount == 0) {
+            return;
+        }
+
+        grid.clearRect(1, 1, 2 * cellsX - 1, 2 * cellsY - 1);
+        for (int y = 2; y < 2 * cellsY; y += 2) {
+            for (int x = 2; x < 2 * cellsX; x += 2) {
+                grid.setBlocked(y * width + x, true);
             }
         }
+    }
 
-        return grid;
+    private void generateBacktracker() {
+        visited = clearBits(visited);
+        if (directions == null) {
+            directions = new byte[cellCount];
+        }
+
+        int current = 0;
+        setBit(visited, current);
+        directions[current] = NO_DIRECTION;
+        while (true) {
+            int d = randomDirection(current, false);
+            if (d >= 0) {
+                int next = neighbour(current, d);
+                removeWall(current, d);
+                setBit(visited, next);
+                directions[next] = (byte) ((d + 2) & 3);
+                current = next;
+            } else if (directions[current] != NO_DIRECTION) {
+                // dead end, back to the cell it has been reached from
+                current = neighbour(current, directions[current]);
+            } else {
+                break;
+            }
+        }
     }
 
-    private void initMaze() {
-        for(int i = 0; i < size.getY(); i++) {
-            for(int j = 0; j < size.getX(); j++)  {
-                if(i % 2 == 0 || j % 2 == 0 || i == size.getY() - 1 || j == size.getX() - 1) {
-                    grid[i][j] = true;
+    private void generateKruskal() {
+        // walls to the right (even) and below (odd) of every cell
+        if (cells == null || cells.length < 2 * cellCount) {
+            cells = new int[2 * cellCount];
+        }
+        if (parents == null) {
+            parents = new int[cellCount];
+            ranks = new byte[cellCount];
+        }
+        Arrays.fill(ranks, (byte) 0);
+
+        int wallCount = 0;
+        for (int c = 0; c < cellCount; c++) {
+            parents[c] = c;
+            if (c % cellsX < cellsX - 1) {
+                cells[wallCount++] = c << 1;
+            }
+            if (c / cellsX < cellsY - 1) {
+                cells[wallCount++] = c << 1 | 1;
+            }
+        }
+
+        for (int i = wallCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = cells[i];
+            cells[i] = cells[j];
+            cells[j] = swap;
+        }
+
+        int joined = 0;
+        for (int i = 0; i < wallCount && joined < cellCount - 1; i++) {
+            int c = cells[i] >>> 1;
+            int d = cells[i] & 1;
+            int rootA = find(c);
+            int rootB = find(neighbour(c, d));
+            if (rootA != rootB) {
+                // the lower tree is attached to the higher one, so the trees stay flat
+                if (ranks[rootA] > ranks[rootB]) {
+                    parents[rootB] = rootA;
+                } else {
+                    parents[rootA] = rootB;
+                    if (ranks[rootA] == ranks[rootB]) {
+                        ranks[rootB]++;
+                    }
                 }
+                removeWall(c, d);
+                joined++;
+            }
+        }
+    }
+
+    private int find(int c) {
+        while (parents[c] != c) {
+            parents[c] = parents[parents[c]];
+            c = parents[c];
+        }
+        return c;
+    }
+
+    private void generatePrim() {
+        visited = clearBits(visited);
+        frontier = clearBits(frontier);
+        if (cells == null || cells.length < cellCount) {
+            cells = new int[cellCount];
+        }
+
+        int frontierSize = addToMaze(random.nextInt(cellCount), 0);
+        while (frontierSize > 0) {
+            int i = random.nextInt(frontierSize);
+            int c = cells[i];
+            cells[i] = cells[--frontierSize];
+
+            // a frontier cell always has a neighbour in the maze
+            removeWall(c, randomDirection(c, true));
+            frontierSize = addToMaze(c, frontierSize);
+        }
+    }
+
+    /**
+     * Adds a cell to the maze of Prim's algorithm and its neighbours outside of the maze to the frontier
+     *
+     * @return new size of the frontier
+     */
+    private int addToMaze(int c, int frontierSize) {
+        setBit(visited, c);
+        for (int d = 0; d < 4; d++) {
+            int n = neighbour(c, d);
+            if (n >= 0 && !getBit(visited, n) && !getBit(frontier, n)) {
+                setBit(frontier, n);
+                cells[frontierSize++] = n;
+            }
+        }
+        return frontierSize;
+    }
+
+    private void generateWilson() {
+        visited = clearBits(visited);
+        if (directions == null) {
+            directions = new byte[cellCount];
+        }
+
+        setBit(visited, random.nextInt(cellCount));
+        for (int start = 0; start < cellCount; start++) {
+            // random walk until the maze is hit, revisiting a cell overwrites its direction and so erases the loop
+            int c = start;
+            while (!getBit(visited, c)) {
+                int d;
+                do {
+                    d = random.nextInt(4);
+                } while (neighbour(c, d) < 0);
+                directions[c] = (byte) d;
+                c = neighbour(c, d);
+            }
+
+            for (c = start; !getBit(visited, c); c = neighbour(c, directions[c])) {
+                setBit(visited, c);
+                removeWall(c, directions[c]);
+            }
+        }
+    }
+
+    private void generateDivision() {
+        if (regions == null) {
+            // splitting off one row or column at a time keeps at most one region per row and column on the stack
+            regions = new int[4 * (cellsX + cellsY + 1)];
+        }
+
+        int size = 0;
+        size = pushRegion(size, 0, 0, cellsX, cellsY);
+        while (size > 0) {
+            size -= 4;
+            int x = regions[size];
+            int y = regions[size + 1];
+            int w = regions[size + 2];
+            int h = regions[size + 3];
+            if (w < 2 || h < 2) {
+                continue;
+            }
+
+            boolean horizontal = w < h || (w == h && random.nextBoolean());
+            if (horizontal) {
+                // wall below row r with a gap below column gap
+                int r = y + random.nextInt(h - 1);
+                int gap = x + random.nextInt(w);
+                grid.fillRect(2 * x + 1, 2 * r + 2, 2 * w - 1, 1);
+                grid.setBlocked((2 * r + 2) * width + 2 * gap + 1, false);
+                size = pushRegion(size, x, y, w, r - y + 1);
+                size = pushRegion(size, x, r + 1, w, y + h - r - 1);
+            } else {
+                int column = x + random.nextInt(w - 1);
+                int gap = y + random.nextInt(h);
+                grid.fillRect(2 * column + 2, 2 * y + 1, 1, 2 * h - 1);
+                grid.setBlocked((2 * gap + 1) * width + 2 * column + 2, false);
+                size = pushRegion(size, x, y, column - x + 1, h);
+                size = pushRegion(size, column + 1, y, x + w - column - 1, h);
             }
         }
     }
 
-    private ArrayList<Vector2> getUnvistedNeighbours(ArrayList<Vector2> visited, Vector2 v) {
-        ArrayList<Vector2> neighbours = new ArrayList<>();
-        if(v.getX() - 2 > 0) neighbours.add(new Vector2(v.getX() - 2, v.getY()));
-        if(v.getX() + 2 < size.getX() - 1) neighbours.add(new Vector2(v.getX() + 2, v.getY()));
-        if(v.getY() + 2 < size.getY() - 1) neighbours.add(new Vector2(v.getX(), v.getY() + 2));
-        if(v.getY() - 2 > 0) neighbours.add(new Vector2(v.getX(), v.getY() - 2));
-        neighbours.removeIf(visited::contains);
-        return neighbours.size() == 0 ? null : neighbours;
+    private int pushRegion(int size, int x, int y, int w, int h) {
+        // regions which can't be divided any further aren't stored at all
+        if (w < 2 || h < 2) {
+            return size;
+        }
+
+        regions[size] = x;
+        regions[size + 1] = y;
+        regions[size + 2] = w;
+        regions[size + 3] = h;
+        return size + 4;
     }
 
-    private void removeWall(Vector2 v1, Vector2 v2) {
-        grid[(v1.getY() + v2.getY()) / 2][(v1.getX() + v2.getX()) / 2] = false;
+    /**
+     * Picks a random direction to a neighbouring cell inside the grid
+     *
+     * @param c       id of the cell
+     * @param visited whether the neighbour has to be part of the maze or not
+     * @return the direction or -1 if there's no such neighbour
+     */
+    private int randomDirection(int c, boolean visited) {
+        int candidates = 0;
+        int count = 0;
+        for (int d = 0; d < 4; d++) {
+            int n = neighbour(c, d);
+            if (n >= 0 && getBit(this.visited, n) == visited) {
+                candidates |= 1 << d;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+
+        // the k-th candidate
+        for (int k = random.nextInt(count); k > 0; k--) {
+            candidates &= candidates - 1;
+        }
+        return Integer.numberOfTrailingZeros(candidates);
     }
 
+    /**
+     * @return id of the neighbouring cell in a direction or -1 if it's outside of the grid
+     */
+    private int neighbour(int c, int d) {
+        int x = c % cellsX + DX[d];
+        int y = c / cellsX + DY[d];
+        return x < 0 || x >= cellsX || y < 0 || y >= cellsY ? -1 : y * cellsX + x;
+    }
+
+    /**
+     * Removes the wall between a cell and its neighbour in a direction
+     */
+    private void removeWall(int c, int d) {
+        int x = 2 * (c % cellsX) + 1 + DX[d];
+        int y = 2 * (c / cellsX) + 1 + DY[d];
+        grid.setBlocked(y * width + x, false);
+    }
 
+    private long[] clearBits(long[] bits) {
+        if (bits == null) {
+            return new long[(cellCount + 63) >>> 6];
+        }
+        Arrays.fill(bits, 0L);
+        return bits;
+    }
+
+    private static boolean getBit(long[] bits, int i) {
+        return (bits[i >>> 6] & 1L << i) != 0;
+    }
+
+    private static void setBit(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
 }
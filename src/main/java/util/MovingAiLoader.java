@@ -0,0 +1,178 @@
+package util;
+
+import model.MappedGrid;
+import model.PathQuery;
+import model.ScenarioEntry;
+import model.Vector2;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Loads maps and scenarios in the format of the Moving AI Lab grid benchmarks
+ * (https://movingai.com/benchmarks/formats.html).
+ * <p>
+ * A map is converted once into a compact tile file (one bit per node, see {@link MappedGrid}) by streaming the text
+ * row by row, later loads only memory-map the tile file. Nodes marked '.', 'G' or 'S' are walkable, all other nodes
+ * (trees, water, out of bounds) are blocked.
+ *
+ * @author serturx
+ */
+public final class MovingAiLoader {
+
+    /**
+     * Extension of tile files written next to the maps
+     */
+    public static final String TILE_EXTENSION = ".tiles";
+
+    private MovingAiLoader() {
+    }
+
+    /**
+     * Loads a map, converting it to a tile file next to it if there is no tile file newer than the map. If there's only
+     * a tile file (e.g. written by {@link MapCorpusGenerator}), it is used without the map.
+     *
+     * @param mapFile map in the Moving AI format
+     * @return grid mapped from the tile file
+     * @throws IOException if the map can't be read or is invalid
+     */
+    public static MappedGrid loadMap(Path mapFile) throws IOException {
+        Path tileFile = tileFileOf(mapFile);
+        if (!Files.exists(tileFile) || (Files.exists(mapFile)
+                && Files.getLastModifiedTime(tileFile).compareTo(Files.getLastModifiedTime(mapFile)) < 0)) {
+            convertMap(mapFile, tileFile);
+        }
+        return MappedGrid.open(tileFile);
+    }
+
+    /**
+     * @param mapFile map in the Moving AI format
+     * @return tile file the map is converted to
+     */
+    public static Path tileFileOf(Path mapFile) {
+        return mapFile.resolveSibling(mapFile.getFileName() + TILE_EXTENSION);
+    }
+
+    /**
+     * Converts a map into a tile file, reading one row of the map at a time
+     *
+     * @param mapFile  map in the Moving AI format
+     * @param tileFile tile file to write, replaced if it exists
+     * @throws IOException if the map can't be read or is invalid
+     */
+    public static void convertMap(Path mapFile, Path tileFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(mapFile, StandardCharsets.US_ASCII)) {
+            int height = -1;
+            int width = -1;
+            String line;
+            while ((line = reader.readLine()) != null && !line.trim().equals("map")) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 2 && parts[0].equals("height")) {
+                    height = parseInt(mapFile, parts[1]);
+                } else if (parts.length == 2 && parts[0].equals("width")) {
+                    width = parseInt(mapFile, parts[1]);
+                }
+            }
+            if (line == null || height <= 0 || width <= 0) {
+                throw new IOException(String.format("%s is missing its size or the map section", mapFile));
+            }
+
+            // written next to the tile file first, so an invalid map never leaves a broken tile file behind
+            Path tempFile = tileFile.resolveSibling(tileFile.getFileName() + ".tmp");
+            int mapWidth = width;
+            try {
+                MappedGrid.write(tempFile, height, width, (y, row) -> {
+                    String tiles = reader.readLine();
+                    if (tiles == null || tiles.length() < mapWidth) {
+                        throw new IOException(String.format("Row %d of %s is missing or too short", y, mapFile));
+                    }
+                    for (int x = 0; x < mapWidth; x++) {
+                        row[x] = !isPassable(tiles.charAt(x));
+                    }
+                });
+                Files.move(tempFile, tileFile, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Reads all problems of a scenario file
+     *
+     * @param scenarioFile scenario in the Moving AI format (version 1)
+     * @return problems in the order of the file
+     * @throws IOException if the file can't be read or is invalid
+     */
+    public static List<ScenarioEntry> loadScenarios(Path scenarioFile) throws IOException {
+        List<ScenarioEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(scenarioFile, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("version")) {
+                    continue;
+                }
+
+                String[] parts = line.split("\\s+");
+                if (parts.length != 9) {
+                    throw new IOException(String.format("Invalid line in %s: %s", scenarioFile, line));
+                }
+                Vector2 from = new Vector2(parseInt(scenarioFile, parts[4]), parseInt(scenarioFile, parts[5]));
+                Vector2 to = new Vector2(parseInt(scenarioFile, parts[6]), parseInt(scenarioFile, parts[7]));
+                double optimalLength;
+                try {
+                    optimalLength = Double.parseDouble(parts[8]);
+                } catch (NumberFormatException e) {
+                    throw new IOException(String.format("Invalid path length in %s: %s", scenarioFile, line), e);
+                }
+
+                entries.add(new ScenarioEntry(parseInt(scenarioFile, parts[0]), parts[1],
+                        parseInt(scenarioFile, parts[2]), parseInt(scenarioFile, parts[3]), new PathQuery(from, to),
+                        optimalLength));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes problems to a scenario file (version 1), the file is replaced if it exists
+     *
+     * @param scenarioFile file to write
+     * @param entries      problems in the order they should be run
+     * @throws IOException if the file can't be written
+     */
+    public static void writeScenarios(Path scenarioFile, List<ScenarioEntry> entries) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(scenarioFile, StandardCharsets.US_ASCII)) {
+            writer.write("version 1");
+            writer.newLine();
+            for (ScenarioEntry entry : entries) {
+                PathQuery query = entry.getQuery();
+                writer.write(String.format(Locale.ROOT, "%d\t%s\t%d\t%d\t%d\t%d\t%d\t%d\t%.8f", entry.getBucket(),
+                        entry.getMap(), entry.getMapWidth(), entry.getMapHeight(), query.getFrom().getX(),
+                        query.getFrom().getY(), query.getTo().getX(), query.getTo().getY(), entry.getOptimalLength()));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static boolean isPassable(char tile) {
+        return tile == '.' || tile == 'G' || tile == 'S';
+    }
+
+    private static int parseInt(Path file, String value) throws IOException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Invalid number in %s: %s", file, value), e);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Open list of the A* Algorithm implemented as an indexed binary min heap over integer cell ids (y * width + x).
+ * Entries are ordered by their f cost first and their h cost second. In contrast to a plain priority queue every cell
+ * knows its slot in the heap, so membership checks are O(1) and a cost decrease can be re-sifted in O(log n) instead
+ * of removing and re-adding the node.
+ * <p>
+ * The slot index works like a sparse set: a slot only counts if the heap entry in that slot points back to the cell,
+ * so stale slots of previous searches never have to be cleared and {@link #clear()} takes constant time.
+ *
+ * @author serturx
+ */
+public class OpenList {
+
+    private static final int DEF_CAPACITY = 64;
+
+    /**
+     * Heap slot of every cell plus one, only valid if the heap entry in that slot is the cell itself
+     */
+    private final int[] slotOf;
+    /**
+     * Cell ids in heap order
+     */
+    private int[] ids;
+    /**
+     * F cost of the entry in the same heap slot
+     */
+    private int[] fCosts;
+    /**
+     * H cost of the entry in the same heap slot, used to break ties between equal f costs
+     */
+    private int[] hCosts;
+    private int size;
+    /**
+     * Operations since the statistics have been reset, see {@link SearchStats}
+     */
+    private long pushCount;
+    private long pollCount;
+    private long updateCount;
+    private int peakSize;
+
+    /**
+     * OpenList Constructor
+     *
+     * @param cellCount total amount of cells in the grid, ids must be in the range [0, cellCount)
+     */
+    public OpenList(int cellCount) {
+        int capacity = Math.max(1, Math.min(cellCount, DEF_CAPACITY));
+        this.slotOf = new int[cellCount];
+        this.ids = new int[capacity];
+        this.fCosts = new int[capacity];
+        this.hCosts = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a cell which is not yet in the open list
+     *
+     * @param id    cell id
+     * @param fCost f cost of the cell
+     * @param hCost h cost of the cell
+     */
+    public void push(int id, int fCost, int hCost) {
+        if (contains(id)) {
+            throw new IllegalArgumentException(String.format("Cell %d is already in the open list", id));
+        }
+
+        if (size == ids.length) {
+            grow();
+        }
+
+        int slot = size++;
+        pushCount++;
+        peakSize = Math.max(peakSize, size);
+        ids[slot] = id;
+        fCosts[slot] = fCost;
+        hCosts[slot] = hCost;
+        slotOf[id] = slot + 1;
+        siftUp(slot);
+    }
+
+    /**
+     * Lowers the costs of a cell which is already in the open list and restores the heap order
+     *
+     * @param id    cell id
+     * @param fCost new f cost, must not be bigger than the current one
+     * @param hCost new h cost
+     */
+    public void decreaseKey(int id, int fCost, int hCost) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException(String.format("Cell %d is not in the open list", id));
+        }
+
+        int slot = slotOf[id] - 1;
+        updateCount++;
+        fCosts[slot] = fCost;
+        hCosts[slot] = hCost;
+        siftUp(slot);
+    }
+
+    /**
+     * Changes the costs of a cell which is already in the open list to any value and restores the heap order
+     *
+     * @param id    cell id
+     * @param fCost new f cost
+     * @param hCost new h cost
+     */
+    public void update(int id, int fCost, int hCost) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException(String.format("Cell %d is not in the open list", id));
+        }
+
+        int slot = slotOf[id] - 1;
+        updateCount++;
+        boolean increased = less(fCosts[slot], hCosts[slot], fCost, hCost);
+        fCosts[slot] = fCost;
+        hCosts[slot] = hCost;
+        if (increased) {
+            siftDown(slot);
+        } else {
+            siftUp(slot);
+        }
+    }
+
+    /**
+     * Removes a cell from the open list if it is in it
+     *
+     * @param id cell id
+     */
+    public void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+
+        int slot = slotOf[id] - 1;
+        size--;
+        if (slot < size) {
+            move(size, slot);
+            siftDown(slot);
+            siftUp(slot);
+        }
+    }
+
+    /**
+     * @return f cost of the cell at the top of the open list
+     */
+    public int peekFCost() {
+        if (size == 0) {
+            throw new NoSuchElementException("Open list is empty");
+        }
+
+        return fCosts[0];
+    }
+
+    /**
+     * @return h cost of the cell at the top of the open list
+     */
+    public int peekHCost() {
+        if (size == 0) {
+            throw new NoSuchElementException("Open list is empty");
+        }
+
+        return hCosts[0];
+    }
+
+    /**
+     * Removes the cell with the lowest f cost (and lowest h cost on ties)
+     *
+     * @return id of the removed cell
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("Open list is empty");
+        }
+
+        int top = ids[0];
+        size--;
+        pollCount++;
+
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+
+        return top;
+    }
+
+    /**
+     * @return id of the cell with the lowest f cost without removing it
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("Open list is empty");
+        }
+
+        return ids[0];
+    }
+
+    public boolean contains(int id) {
+        int slot = slotOf[id] - 1;
+        return slot >= 0 && slot < size && ids[slot] == id;
+    }
+
+    /**
+     * Removes all entries in constant time, the slots of the removed cells are left stale
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Calls the consumer for every cell id in the open list (in heap order, not sorted)
+     *
+     * @param action consumer to call
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(ids[i]);
+        }
+    }
+
+    /**
+     * Resets the operation counters and the peak size to the current size
+     */
+    public void resetStatistics() {
+        pushCount = 0;
+        pollCount = 0;
+        updateCount = 0;
+        peakSize = size;
+    }
+
+    /**
+     * @return amount of cells added since the statistics have been reset
+     */
+    public long getPushCount() {
+        return pushCount;
+    }
+
+    /**
+     * @return amount of cells removed from the top since the statistics have been reset
+     */
+    public long getPollCount() {
+        return pollCount;
+    }
+
+    /**
+     * @return amount of cost changes of cells already in the open list since the statistics have been reset
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * @return highest amount of cells in the open list since the statistics have been reset
+     */
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void siftUp(int slot) {
+        int id = ids[slot];
+        int f = fCosts[slot];
+        int h = hCosts[slot];
+
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!less(f, h, fCosts[parent], hCosts[parent])) {
+                break;
+            }
+            move(parent, slot);
+            slot = parent;
+        }
+
+        place(slot, id, f, h);
+    }
+
+    private void siftDown(int slot) {
+        int id = ids[slot];
+        int f = fCosts[slot];
+        int h = hCosts[slot];
+        int half = size >>> 1;
+
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && less(fCosts[right], hCosts[right], fCosts[child], hCosts[child])) {
+                child = right;
+            }
+            if (!less(fCosts[child], hCosts[child], f, h)) {
+                break;
+            }
+            move(child, slot);
+            slot = child;
+        }
+
+        place(slot, id, f, h);
+    }
+
+    private static boolean less(int f1, int h1, int f2, int h2) {
+        return f1 < f2 || (f1 == f2 && h1 < h2);
+    }
+
+    private void move(int from, int to) {
+        place(to, ids[from], fCosts[from], hCosts[from]);
+    }
+
+    private void place(int slot, int id, int f, int h) {
+        ids[slot] = id;
+        fCosts[slot] = f;
+        hCosts[slot] = h;
+        slotOf[id] = slot + 1;
+    }
+
+    private void grow() {
+        int capacity = Math.min(slotOf.length, Math.max(ids.length * 2, DEF_CAPACITY));
+        ids = Arrays.copyOf(ids, capacity);
+        fCosts = Arrays.copyOf(fCosts, capacity);
+        hCosts = Arrays.copyOf(hCosts, capacity);
+    }
+}
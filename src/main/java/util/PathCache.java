@@ -0,0 +1,316 @@
+package util;
+
+import model.Grid;
+import model.SearchMode;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of calculated paths, the least recently used path is evicted when the cache is full. Paths are cached
+ * per start node, destination node, diagonal mode and search mode, as not every search mode finds the same (or an
+ * optimal) path, and are only valid for the version of the grid the cache is in sync with.
+ * <p>
+ * Instead of dropping all paths when the grid changes, edits made through {@link AStar} only invalidate the paths
+ * which might be affected: blocking a node only invalidates the paths through it, as all other paths stay walkable and
+ * can't get any shorter. Unblocking a node only invalidates the paths which could get shorter by passing it, i.e. those
+ * whose cost is bigger than the shortest possible distance from the start over the node to the destination. If the
+ * grid has been changed in any other way the cache is cleared.
+ * <p>
+ * All methods are synchronized, so the cache can be shared between a search thread and the thread editing the grid.
+ *
+ * @author serturx
+ */
+public class PathCache {
+
+    private final int capacity;
+    /**
+     * Cached paths in access order, the least recently used one first
+     */
+    private final LinkedHashMap<Key, CachedPath> entries;
+    /**
+     * Version of the grid all cached paths are valid for
+     */
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * PathCache Constructor
+     *
+     * @param capacity maximum amount of cached paths
+     */
+    public PathCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPath> eldest) {
+                if (size() > PathCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.version = -1;
+    }
+
+    /**
+     * Looks up a path
+     *
+     * @param from          id of the starting node
+     * @param to            id of the destination node
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @param searchMode    search mode the path is needed for
+     * @param version       version of the grid the path is needed for
+     * @return the cached path or null if the path isn't cached
+     */
+    public synchronized CachedPath get(int from, int to, boolean allowDiagonal, SearchMode searchMode, long version) {
+        sync(version);
+        CachedPath entry = version == this.version
+                ? entries.get(new Key(from, to, allowDiagonal, searchMode)) : null;
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry;
+    }
+
+    /**
+     * Adds a path, a destination which can't be reached is cached as empty path with cost Integer.MAX_VALUE
+     *
+     * @param from          id of the starting node
+     * @param to            id of the destination node
+     * @param allowDiagonal whether diagonal moves are allowed
+     * @param searchMode    search mode which has calculated the path
+     * @param version       version of the grid the path has been calculated on
+     * @param path          ids of the path from the destination back to the start
+     * @param cost          cost of the path
+     * @param width         width of the grid
+     */
+    public synchronized void put(int from, int to, boolean allowDiagonal, SearchMode searchMode, long version,
+                                 int[] path, int cost, int width) {
+        sync(version);
+        // the grid has been edited while the path has been calculated
+        if (version != this.version) {
+            return;
+        }
+
+        entries.put(new Key(from, to, allowDiagonal, searchMode),
+                new CachedPath(from, to, allowDiagonal, path, cost, width));
+    }
+
+    /**
+     * Invalidates the paths affected by blocking or unblocking a single node
+     *
+     * @param id         id of the changed node
+     * @param blocked    whether the node has been blocked
+     * @param oldVersion version of the grid before the change
+     * @param newVersion version of the grid after the change
+     */
+    public synchronized void onBlockChanged(int id, boolean blocked, long oldVersion, long newVersion) {
+        if (oldVersion != version) {
+            clear(newVersion);
+            return;
+        }
+
+        Iterator<CachedPath> it = entries.values().iterator();
+        while (it.hasNext()) {
+            CachedPath entry = it.next();
+            if (blocked ? entry.contains(id) : entry.canPass(id)) {
+                it.remove();
+                invalidations++;
+            }
+        }
+        version = newVersion;
+    }
+
+    /**
+     * Invalidates the paths through nodes which are blocked in the grid after nodes have only been blocked
+     *
+     * @param grid       grid after the change
+     * @param oldVersion version of the grid before the change
+     */
+    public synchronized void onBlocked(Grid grid, long oldVersion) {
+        if (oldVersion != version) {
+            clear(grid.getVersion());
+            return;
+        }
+
+        Iterator<CachedPath> it = entries.values().iterator();
+        while (it.hasNext()) {
+            CachedPath entry = it.next();
+            for (int id : entry.sortedPath) {
+                if (grid.isBlocked(id)) {
+                    it.remove();
+                    invalidations++;
+                    break;
+                }
+            }
+        }
+        version = grid.getVersion();
+    }
+
+    /**
+     * Removes all paths
+     */
+    public synchronized void clear() {
+        clear(-1);
+    }
+
+    /**
+     * Drops the cached paths if they belong to an older version of the grid than the given one
+     */
+    private void sync(long version) {
+        if (version > this.version) {
+            clear(version);
+        }
+    }
+
+    private void clear(long version) {
+        invalidations += entries.size();
+        entries.clear();
+        this.version = version;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return amount of paths removed because the grid has changed
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Query a path has been calculated for
+     */
+    private static final class Key {
+
+        private final int from;
+        private final int to;
+        private final boolean allowDiagonal;
+        private final SearchMode searchMode;
+
+        private Key(int from, int to, boolean allowDiagonal, SearchMode searchMode) {
+            this.from = from;
+            this.to = to;
+            this.allowDiagonal = allowDiagonal;
+            this.searchMode = searchMode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return from == key.from && to == key.to && allowDiagonal == key.allowDiagonal
+                    && searchMode == key.searchMode;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((from * 31 + to) * 31 + searchMode.ordinal()) * 2 + (allowDiagonal ? 1 : 0);
+        }
+    }
+
+    /**
+     * A cached path and its cost
+     */
+    public static final class CachedPath {
+
+        private final int[] path;
+        /**
+         * Ids of the path in ascending order, to look up whether a node is part of the path
+         */
+        private final int[] sortedPath;
+        private final int cost;
+        private final boolean allowDiagonal;
+        private final int fromX;
+        private final int fromY;
+        private final int toX;
+        private final int toY;
+        private final int width;
+
+        CachedPath(int from, int to, boolean allowDiagonal, int[] path, int cost, int width) {
+            this.path = path;
+            this.sortedPath = path.clone();
+            Arrays.sort(sortedPath);
+            this.cost = cost;
+            this.allowDiagonal = allowDiagonal;
+            this.fromX = from % width;
+            this.fromY = from / width;
+            this.toX = to % width;
+            this.toY = to / width;
+            this.width = width;
+        }
+
+        /**
+         * @return ids of the path from the destination back to the start, must not be modified
+         */
+        public int[] getPath() {
+            return path;
+        }
+
+        public int getCost() {
+            return cost;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(sortedPath, id) >= 0;
+        }
+
+        /**
+         * Checks whether a path over the node could be shorter than the cached path
+         */
+        boolean canPass(int id) {
+            int x = id % width;
+            int y = id / width;
+            return distance(fromX, fromY, x, y) + distance(x, y, toX, toY) < cost;
+        }
+
+        /**
+         * Lowest possible cost of moving between two nodes
+         */
+        private int distance(int x1, int y1, int x2, int y2) {
+            int dx = Math.abs(x1 - x2);
+            int dy = Math.abs(y1 - y2);
+            if (!allowDiagonal) {
+                return AStar.getDefCost() * (dx + dy);
+            }
+            return AStar.getDefCost() * (dx + dy) + (AStar.getDiagCost() - 2 * AStar.getDefCost()) * Math.min(dx, dy);
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package util;
+
+import model.AstarNode;
+import model.MappedGrid;
+import model.PathQuery;
+import model.ScenarioEntry;
+import model.SearchMode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Headless runner which answers every problem of a Moving AI scenario file on its map and reports the throughput, the
+ * latency percentiles, the nodes expanded per query and how far the found paths deviate from the optimal lengths in
+ * the scenario. Queries run one after another on a single {@link AStar} per map, after the queries of a map have been
+ * run untimed a number of times to warm up the JIT.
+ * <p>
+ * Path lengths are compared in the unit of the scenario files (straight moves cost 1, diagonal moves sqrt(2)), so the
+ * length is measured on the found path instead of taken from {@link AStar#getTotalCost()}, whose diagonal cost of 14
+ * would make every path with diagonal moves look slightly shorter. The reference lengths don't allow cutting corners
+ * while {@link AStar} does, so paths shorter than the reference are expected. Paths longer than the reference by more
+ * than a tolerance, missing paths and invalid paths count as errors. The default tolerance is the bound of the
+ * weighted heuristic of {@link AStar}, which may find paths up to 1% longer than the shortest one. HPA* has no such
+ * bound, as its paths pass the entrances of the clusters, its default tolerance is above the worst case measured on
+ * generated corpora. The p99 and maximum deviation are reported for every mode.
+ * <p>
+ * Usage: {@code ScenarioRunner <scenario file> [--maps <directory>] [--mode <search mode>] [--no-diagonal]
+ * [--warmup <runs>] [--landmarks <count>] [--tolerance <relative deviation>]}. The exit code is 1 if there are
+ * errors. With landmarks the searches use the ALT heuristic, the landmark distances are saved next to each map.
+ *
+ * @author serturx
+ */
+public class ScenarioRunner {
+
+    /**
+     * Tolerance of the length comparison, the lengths in the scenario files are rounded
+     */
+    private static final double LENGTH_TOLERANCE = 1e-4;
+    private static final double SQRT_2 = Math.sqrt(2);
+    /**
+     * Default tolerance of HPA*, its smoothed paths have been up to 11.4% longer than optimal on generated corpora
+     */
+    private static final double HIERARCHICAL_TOLERANCE = 0.15;
+
+    private SearchMode searchMode = SearchMode.ASTAR;
+    private boolean allowDiagonal = true;
+    private int warmupRuns = 1;
+    /**
+     * Relative deviation from the optimal length up to which a longer path isn't an error, -1 for the default of the
+     * search mode
+     */
+    private double tolerance = -1;
+    /**
+     * Amount of landmarks for the ALT heuristic, 0 to only use the octile distance
+     */
+    private int landmarkCount;
+
+    /**
+     * Runs all problems of a scenario file, the maps are looked up next to the scenario file
+     *
+     * @param scenarioFile scenario in the Moving AI format
+     * @return the results
+     * @throws IOException if the scenario or a map can't be read
+     */
+    public Report run(Path scenarioFile) throws IOException {
+        Path directory = scenarioFile.toAbsolutePath().getParent();
+        return run(MovingAiLoader.loadScenarios(scenarioFile), directory);
+    }
+
+    /**
+     * Runs the given problems
+     *
+     * @param entries      problems to run
+     * @param mapDirectory directory containing the maps named in the problems
+     * @return the results
+     * @throws IOException if a map can't be read
+     */
+    public Report run(List<ScenarioEntry> entries, Path mapDirectory) throws IOException {
+        // problems of the same map run together, so every map is only loaded once
+        Map<String, List<ScenarioEntry>> byMap = new LinkedHashMap<>();
+        for (ScenarioEntry entry : entries) {
+            byMap.computeIfAbsent(entry.getMap(), m -> new ArrayList<>()).add(entry);
+        }
+
+        Report report = new Report(entries.size(), searchMode, allowDiagonal, getTolerance());
+        for (Map.Entry<String, List<ScenarioEntry>> group : byMap.entrySet()) {
+            Path mapFile = resolveMap(mapDirectory, group.getKey());
+            MappedGrid grid = MovingAiLoader.loadMap(mapFile);
+            ExpansionCounter counter = new ExpansionCounter();
+            AStar astar = new AStar(grid, null, null);
+            astar.setSearchMode(searchMode);
+            astar.setAllowDiagonal(allowDiagonal);
+            if (landmarkCount > 0) {
+                Path landmarkFile = mapFile.resolveSibling(mapFile.getFileName() + LandmarkTable.FILE_EXTENSION);
+                astar.setLandmarks(LandmarkTable.loadOrCompute(grid, landmarkFile, landmarkCount, allowDiagonal));
+            }
+
+            for (int i = 0; i < warmupRuns; i++) {
+                for (ScenarioEntry entry : group.getValue()) {
+                    search(astar, entry.getQuery());
+                }
+            }
+
+            astar.setListener(counter);
+            for (ScenarioEntry entry : group.getValue()) {
+                counter.expanded = 0;
+                long start = System.nanoTime();
+                search(astar, entry.getQuery());
+                long latency = System.nanoTime() - start;
+                report.add(entry, latency, counter.expanded, astar);
+            }
+        }
+        return report;
+    }
+
+    private static void search(AStar astar, PathQuery query) {
+        astar.setFrom(query.getFrom());
+        astar.setTo(query.getTo());
+        astar.calcPath();
+    }
+
+    /**
+     * Finds a map named in a scenario, the names often contain the directory of the map collection. A map which only
+     * exists as tile file is found as well.
+     */
+    private static Path resolveMap(Path mapDirectory, String name) throws IOException {
+        Path map = mapDirectory.resolve(name);
+        if (Files.exists(map) || Files.exists(MovingAiLoader.tileFileOf(map))) {
+            return map;
+        }
+
+        Path fileName = Path.of(name).getFileName();
+        map = mapDirectory.resolve(fileName);
+        if (Files.exists(map) || Files.exists(MovingAiLoader.tileFileOf(map))) {
+            return map;
+        }
+        throw new IOException(String.format("Map %s not found in %s", name, mapDirectory));
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    public boolean getAllowDiagonal() {
+        return allowDiagonal;
+    }
+
+    public void setAllowDiagonal(boolean allowDiagonal) {
+        this.allowDiagonal = allowDiagonal;
+    }
+
+    public int getWarmupRuns() {
+        return warmupRuns;
+    }
+
+    public void setWarmupRuns(int warmupRuns) {
+        if (warmupRuns < 0) {
+            throw new IllegalArgumentException("Warmup runs must not be negative");
+        }
+        this.warmupRuns = warmupRuns;
+    }
+
+    /**
+     * @return the tolerance set or the default of the search mode
+     */
+    public double getTolerance() {
+        return tolerance >= 0 ? tolerance : defaultTolerance(searchMode);
+    }
+
+    /**
+     * @param searchMode search mode
+     * @return relative deviation from the optimal length the search mode may find by design
+     */
+    public static double defaultTolerance(SearchMode searchMode) {
+        return searchMode == SearchMode.HIERARCHICAL ? HIERARCHICAL_TOLERANCE : AStar.gethCostWeight() - 1;
+    }
+
+    public void setTolerance(double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Tolerance must not be negative");
+        }
+        this.tolerance = tolerance;
+    }
+
+    public int getLandmarkCount() {
+        return landmarkCount;
+    }
+
+    /**
+     * Sets the amount of landmarks for the ALT heuristic, the distances are saved next to each map
+     *
+     * @param landmarkCount amount of landmarks, 0 to only use the octile distance
+     */
+    public void setLandmarkCount(int landmarkCount) {
+        if (landmarkCount < 0) {
+            throw new IllegalArgumentException("Landmark count must not be negative");
+        }
+        this.landmarkCount = landmarkCount;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            printUsage();
+            System.exit(2);
+        }
+
+        ScenarioRunner runner = new ScenarioRunner();
+        Path scenarioFile = Path.of(args[0]);
+        Path mapDirectory = scenarioFile.toAbsolutePath().getParent();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--maps":
+                        mapDirectory = Path.of(args[++i]);
+                        break;
+                    case "--mode":
+                        runner.setSearchMode(SearchMode.valueOf(args[++i]));
+                        break;
+                    case "--no-diagonal":
+                        runner.setAllowDiagonal(false);
+                        break;
+                    case "--warmup":
+                        runner.setWarmupRuns(Integer.parseInt(args[++i]));
+                        break;
+                    case "--landmarks":
+                        runner.setLandmarkCount(Integer.parseInt(args[++i]));
+                        break;
+                    case "--tolerance":
+                        runner.setTolerance(Double.parseDouble(args[++i]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        try {
+            Report report = runner.run(MovingAiLoader.loadScenarios(scenarioFile), mapDirectory);
+            System.out.println(report);
+            System.exit(report.getErrorCount() == 0 ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static void printUsage() {
+        String modes = String.join("|", Arrays.stream(SearchMode.values()).map(Enum::name).toArray(String[]::new));
+        System.err.println("Usage: ScenarioRunner <scenario file> [--maps <directory>] [--mode " + modes + "]"
+                + " [--no-diagonal] [--warmup <runs>] [--landmarks <count>] [--tolerance <deviation>]");
+    }
+
+    /**
+     * Counts the expanded nodes of the running search
+     */
+    private static class ExpansionCounter implements SearchListener {
+
+        private long expanded;
+
+        @Override
+        public void onNodeExpanded(int id) {
+            expanded++;
+        }
+    }
+
+    /**
+     * Latencies, expanded nodes and path lengths of all problems of a run
+     */
+    public static final class Report {
+
+        private final SearchMode searchMode;
+        private final boolean allowDiagonal;
+        private final double tolerance;
+        private final long[] latencies;
+        /**
+         * Relative deviations of the paths compared with their optimal lengths
+         */
+        private final double[] deviations;
+        private int compared;
+        private long totalExpanded;
+        private long maxExpanded;
+        private int count;
+        private int missing;
+        private int invalid;
+        private int longer;
+        private int shorter;
+        private double deviationSum;
+        private double maxDeviation;
+
+        private Report(int capacity, SearchMode searchMode, boolean allowDiagonal, double tolerance) {
+            this.latencies = new long[capacity];
+            this.deviations = new double[capacity];
+            this.searchMode = searchMode;
+            this.allowDiagonal = allowDiagonal;
+            this.tolerance = tolerance;
+        }
+
+        private void add(ScenarioEntry entry, long latency, long expanded, AStar astar) {
+            latencies[count++] = latency;
+            totalExpanded += expanded;
+            maxExpanded = Math.max(maxExpanded, expanded);
+
+            List<AstarNode> path = astar.getPath();
+            if (path.isEmpty()) {
+                missing++;
+                return;
+            }
+
+            double length = measure(path, astar);
+            if (Double.isNaN(length)) {
+                invalid++;
+                return;
+            }
+            // the reference lengths are only defined for diagonal moves
+            if (!allowDiagonal || entry.getOptimalLength() <= 0) {
+                return;
+            }
+
+            double deviation = (length - entry.getOptimalLength()) / entry.getOptimalLength();
+            deviations[compared++] = deviation;
+            deviationSum += deviation;
+            maxDeviation = Math.max(maxDeviation, deviation);
+            if (length > entry.getOptimalLength() * (1 + tolerance) + LENGTH_TOLERANCE) {
+                longer++;
+            } else if (length < entry.getOptimalLength() - LENGTH_TOLERANCE) {
+                shorter++;
+            }
+        }
+
+        /**
+         * Measures a path with diagonal moves costing sqrt(2)
+         *
+         * @return the length or NaN if the path contains a blocked node or a step between nodes which aren't adjacent
+         */
+        private static double measure(List<AstarNode> path, AStar astar) {
+            int straight = 0;
+            int diagonal = 0;
+            for (int i = 0; i + 1 < path.size(); i++) {
+                AstarNode a = path.get(i);
+                AstarNode b = path.get(i + 1);
+                int dx = Math.abs(a.getX() - b.getX());
+                int dy = Math.abs(a.getY() - b.getY());
+                if (dx > 1 || dy > 1 || dx + dy == 0 || astar.getGrid().isBlocked(b.getId())) {
+                    return Double.NaN;
+                }
+                if (dx + dy == 2) {
+                    diagonal++;
+                } else {
+                    straight++;
+                }
+            }
+            return straight + diagonal * SQRT_2;
+        }
+
+        /**
+         * Returns a latency percentile (nearest rank)
+         *
+         * @param percentile percentile in (0, 100]
+         * @return latency in nanoseconds
+         */
+        public long getLatencyPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            return sorted[Math.max(0, Math.min(count, rank) - 1)];
+        }
+
+        /**
+         * @return queries per second, counting only the time spent searching
+         */
+        public double getThroughput() {
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                total += latencies[i];
+            }
+            return total == 0 ? 0 : count * 1e9 / total;
+        }
+
+        public int getQueryCount() {
+            return count;
+        }
+
+        public double getMeanExpanded() {
+            return count == 0 ? 0 : (double) totalExpanded / count;
+        }
+
+        public long getMaxExpanded() {
+            return maxExpanded;
+        }
+
+        /**
+         * @return amount of queries without a path, every problem of a scenario has one
+         */
+        public int getMissingCount() {
+            return missing;
+        }
+
+        /**
+         * @return amount of paths through blocked nodes or with steps between nodes which aren't adjacent
+         */
+        public int getInvalidCount() {
+            return invalid;
+        }
+
+        /**
+         * @return amount of paths longer than the optimal length in the scenario by more than the tolerance
+         */
+        public int getLongerCount() {
+            return longer;
+        }
+
+        /**
+         * @return amount of paths shorter than the optimal length in the scenario, i.e. cutting corners
+         */
+        public int getShorterCount() {
+            return shorter;
+        }
+
+        /**
+         * @return mean relative deviation of the path lengths from the optimal lengths
+         */
+        public double getMeanDeviation() {
+            return compared == 0 ? 0 : deviationSum / compared;
+        }
+
+        /**
+         * Returns a percentile of the relative deviations of the path lengths from the optimal lengths (nearest rank)
+         *
+         * @param percentile percentile between 0 and 100
+         * @return relative deviation
+         */
+        public double getDeviationPercentile(double percentile) {
+            if (compared == 0) {
+                return 0;
+            }
+            double[] sorted = Arrays.copyOf(deviations, compared);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * compared);
+            return sorted[Math.max(0, Math.min(compared, rank) - 1)];
+        }
+
+        /**
+         * @return biggest relative deviation of a path length from the optimal length
+         */
+        public double getMaxDeviation() {
+            return maxDeviation;
+        }
+
+        public int getErrorCount() {
+            return missing + invalid + longer;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Search mode:        %s, diagonal moves %s%n", searchMode,
+                    allowDiagonal ? "allowed" : "not allowed"));
+            sb.append(String.format("Queries:            %d%n", count));
+            sb.append(String.format("Throughput:         %.1f queries/s%n", getThroughput()));
+            sb.append(String.format("Latency p50:        %.3f ms%n", getLatencyPercentile(50) / 1e6));
+            sb.append(String.format("Latency p99:        %.3f ms%n", getLatencyPercentile(99) / 1e6));
+            sb.append(String.format("Latency p99.9:      %.3f ms%n", getLatencyPercentile(99.9) / 1e6));
+            sb.append(String.format("Expanded nodes:     %.1f mean, %d max%n", getMeanExpanded(), maxExpanded));
+            if (allowDiagonal) {
+                sb.append(String.format("Length deviation:   %+.4f%% mean, %+.4f%% p99, %+.4f%% max%n",
+                        getMeanDeviation() * 100, getDeviationPercentile(99) * 100, maxDeviation * 100));
+                sb.append(String.format("Too long:           %d (tolerance %.2f%%), shorter (cutting corners): %d%n",
+                        longer, tolerance * 100, shorter));
+            }
+            sb.append(String.format("Missing paths:      %d, invalid paths: %d", missing, invalid));
+            return sb.toString();
+        }
+    }
+}
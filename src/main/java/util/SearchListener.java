@@ -0,0 +1,53 @@
+package util;
+
+import model.AstarNode;
+
+import java.util.List;
+
+/**
+ * Receives the progress of a search. All methods are called on the thread running the search and default to doing
+ * nothing, so a listener only implements the events it is interested in. Nodes are passed by their id
+ * (y * width + x) to keep the search free of allocations.
+ *
+ * @author serturx
+ */
+public interface SearchListener {
+
+    /**
+     * Listener which ignores all events, used when a search isn't observed
+     */
+    SearchListener NONE = new SearchListener() { };
+
+    /**
+     * Called when a node is added to the open list
+     *
+     * @param id id of the node
+     */
+    default void onNodeOpened(int id) { }
+
+    /**
+     * Called when a node is taken from the open list
+     *
+     * @param id id of the node
+     */
+    default void onNodeClosed(int id) { }
+
+    /**
+     * Called after all neighbours of a closed node have been added to the open list
+     *
+     * @param id id of the node
+     */
+    default void onNodeExpanded(int id) { }
+
+    /**
+     * Called when the destination node has been reached
+     *
+     * @param path nodes of the path from the destination back to the start
+     */
+    default void onPathFound(List<AstarNode> path) { }
+
+    /**
+     * Called when all reachable nodes have been closed without reaching the destination node
+     */
+    default void onNoPathFound() { }
+}
@@ -0,0 +1,248 @@
+package util;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals of the {@link SearchStats} of all queries which reported to this instance, exposed as an MBean so the
+ * behaviour of the searches can be watched with JConsole or any other JMX client. By default every {@link AStar}
+ * reports to the {@link #getGlobal() global} instance, which is only visible over JMX after {@link #register()} has
+ * been called.
+ * <p>
+ * Queries may report from several threads at once (e.g. through a {@link BatchPathFinder}), the totals are kept in
+ * adders so reporting threads don't contend on a single counter.
+ *
+ * @author serturx
+ */
+public class SearchMetrics implements SearchMetricsMBean {
+
+    /**
+     * Name the global instance is registered under
+     */
+    public static final String OBJECT_NAME = "astar:type=SearchMetrics";
+
+    private static final SearchStats.Phase[] PHASES = SearchStats.Phase.values();
+    private static final SearchMetrics GLOBAL = new SearchMetrics();
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder pathsFound = new LongAdder();
+    private final LongAdder cached = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expandedNodes = new LongAdder();
+    private final LongAdder costUpdates = new LongAdder();
+    private final LongAdder heapPushes = new LongAdder();
+    private final LongAccumulator peakOpenListSize = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] phaseNanos = new LongAdder[PHASES.length];
+    private final LongAdder allocatedBytes = new LongAdder();
+    /**
+     * Counters of the query which has reported last, kept as single values so reporting a query doesn't allocate
+     */
+    private volatile long lastExpandedNodes;
+    private volatile long lastGeneratedNodes;
+    private volatile long lastQueryNanos;
+    private volatile long lastAllocatedBytes;
+
+    /**
+     * SearchMetrics Constructor
+     */
+    public SearchMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the instance all searches report to by default
+     */
+    public static SearchMetrics getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * Registers the global instance with the platform MBean server, calling it again has no effect
+     *
+     * @throws IllegalStateException if the MBean can't be registered
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(GLOBAL, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Search metrics can't be registered", e);
+        }
+    }
+
+    /**
+     * Adds the counters of a finished query
+     *
+     * @param stats counters of the query, the search can reuse the instance afterwards
+     */
+    public void record(SearchStats stats) {
+        queries.increment();
+        if (stats.isPathFound()) {
+            pathsFound.increment();
+        }
+        if (stats.isCached()) {
+            cached.increment();
+        }
+        if (stats.isRejected()) {
+            rejected.increment();
+        }
+        expandedNodes.add(stats.getExpandedNodes());
+        costUpdates.add(stats.getCostUpdates());
+        heapPushes.add(stats.getHeapPushes());
+        peakOpenListSize.accumulate(stats.getPeakOpenListSize());
+        for (SearchStats.Phase phase : PHASES) {
+            phaseNanos[phase.ordinal()].add(stats.getPhaseNanos(phase));
+        }
+        allocatedBytes.add(stats.getAllocatedBytes());
+
+        lastExpandedNodes = stats.getExpandedNodes();
+        lastGeneratedNodes = stats.getGeneratedNodes();
+        lastQueryNanos = stats.getTotalNanos();
+        lastAllocatedBytes = stats.getAllocatedBytes();
+    }
+
+    @Override
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getPathsFound() {
+        return pathsFound.sum();
+    }
+
+    @Override
+    public long getNoPathCount() {
+        return queries.sum() - pathsFound.sum();
+    }
+
+    @Override
+    public long getCachedCount() {
+        return cached.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getExpandedNodes() {
+        return expandedNodes.sum();
+    }
+
+    @Override
+    public long getGeneratedNodes() {
+        return heapPushes.sum() + costUpdates.sum();
+    }
+
+    @Override
+    public long getCostUpdates() {
+        return costUpdates.sum();
+    }
+
+    @Override
+    public long getHeapPushes() {
+        return heapPushes.sum();
+    }
+
+    @Override
+    public long getHeapPops() {
+        return expandedNodes.sum();
+    }
+
+    @Override
+    public long getPeakOpenListSize() {
+        return peakOpenListSize.get();
+    }
+
+    @Override
+    public long getPrepareTimeMillis() {
+        return phaseNanos[SearchStats.Phase.PREPARE.ordinal()].sum() / 1_000_000;
+    }
+
+    @Override
+    public long getSearchTimeMillis() {
+        return phaseNanos[SearchStats.Phase.SEARCH.ordinal()].sum() / 1_000_000;
+    }
+
+    @Override
+    public long getPathTimeMillis() {
+        return phaseNanos[SearchStats.Phase.PATH.ordinal()].sum() / 1_000_000;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        // every query adds -1 if allocations can't be measured
+        return lastAllocatedBytes < 0 ? -1 : allocatedBytes.sum();
+    }
+
+    @Override
+    public double getMeanExpandedNodes() {
+        long count = queries.sum();
+        return count == 0 ? 0 : (double) expandedNodes.sum() / count;
+    }
+
+    @Override
+    public double getMeanQueryMillis() {
+        long count = queries.sum();
+        if (count == 0) {
+            return 0;
+        }
+
+        long total = 0;
+        for (LongAdder nanos : phaseNanos) {
+            total += nanos.sum();
+        }
+        return total / 1e6 / count;
+    }
+
+    @Override
+    public long getLastExpandedNodes() {
+        return lastExpandedNodes;
+    }
+
+    @Override
+    public long getLastGeneratedNodes() {
+        return lastGeneratedNodes;
+    }
+
+    @Override
+    public double getLastQueryMillis() {
+        return lastQueryNanos / 1e6;
+    }
+
+    @Override
+    public long getLastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    @Override
+    public void reset() {
+        queries.reset();
+        pathsFound.reset();
+        cached.reset();
+        rejected.reset();
+        expandedNodes.reset();
+        costUpdates.reset();
+        heapPushes.reset();
+        peakOpenListSize.reset();
+        for (LongAdder nanos : phaseNanos) {
+            nanos.reset();
+        }
+        allocatedBytes.reset();
+        lastExpandedNodes = 0;
+        lastGeneratedNodes = 0;
+        lastQueryNanos = 0;
+        lastAllocatedBytes = 0;
+    }
+}
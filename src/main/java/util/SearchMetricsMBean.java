@@ -0,0 +1,75 @@
+package util;
+
+/**
+ * Management interface of {@link SearchMetrics}, the attributes are totals over all queries since the last reset unless
+ * they are named after the last query
+ *
+ * @author serturx
+ */
+public interface SearchMetricsMBean {
+
+    long getQueryCount();
+
+    long getPathsFound();
+
+    /**
+     * @return amount of queries without a path, including the ones rejected by the connected components
+     */
+    long getNoPathCount();
+
+    /**
+     * @return amount of queries answered from the path cache
+     */
+    long getCachedCount();
+
+    /**
+     * @return amount of queries rejected by the connected components without a search
+     */
+    long getRejectedCount();
+
+    long getExpandedNodes();
+
+    long getGeneratedNodes();
+
+    /**
+     * @return how often a node in an open list has been reached with a different cost
+     */
+    long getCostUpdates();
+
+    long getHeapPushes();
+
+    long getHeapPops();
+
+    /**
+     * @return highest amount of nodes in an open list during any query
+     */
+    long getPeakOpenListSize();
+
+    long getPrepareTimeMillis();
+
+    long getSearchTimeMillis();
+
+    long getPathTimeMillis();
+
+    /**
+     * @return bytes allocated by all queries, -1 if the JVM can't measure them
+     */
+    long getAllocatedBytes();
+
+    double getMeanExpandedNodes();
+
+    double getMeanQueryMillis();
+
+    long getLastExpandedNodes();
+
+    long getLastGeneratedNodes();
+
+    double getLastQueryMillis();
+
+    long getLastAllocatedBytes();
+
+    /**
+     * Sets all counters back to 0
+     */
+    void reset();
+}
@@ -0,0 +1,232 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counters of a single query of an {@link AStar} instance: how many nodes have been expanded and generated, how often
+ * the open list has been changed and how big it got, the wall time of each phase of the query and the bytes the
+ * searching thread allocated during the query. The counters are taken from the open lists of the search mode used, so
+ * every mode is counted the same way without additional work in the search loops.
+ * <p>
+ * An instance is reused for every query and must only be read by the searching thread or after the search has
+ * finished.
+ *
+ * @author serturx
+ */
+public final class SearchStats {
+
+    /**
+     * Phases of a query
+     */
+    public enum Phase {
+        /**
+         * Cache lookup, reachability check and building the jump table of JPS+. The other search modes update their
+         * precomputed data as part of the search.
+         */
+        PREPARE,
+        /**
+         * Expanding nodes until the destination has been reached or the open list is empty
+         */
+        SEARCH,
+        /**
+         * Tracing the found path back and marking its nodes
+         */
+        PATH
+    }
+
+    /**
+     * Allocation counter of the JVM, null if it can't measure the allocations of a thread
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationCounter();
+
+    private long expandedNodes;
+    private long heapPushes;
+    private long costUpdates;
+    private int peakOpenListSize;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long allocatedBytes;
+    private boolean pathFound;
+    private boolean cached;
+    private boolean rejected;
+    private long phaseStart;
+    private long allocatedAtStart;
+
+    /**
+     * Resets all counters and starts the timing of the first phase
+     */
+    void begin() {
+        expandedNodes = 0;
+        heapPushes = 0;
+        costUpdates = 0;
+        peakOpenListSize = 0;
+        Arrays.fill(phaseNanos, 0);
+        allocatedBytes = -1;
+        pathFound = false;
+        cached = false;
+        rejected = false;
+        allocatedAtStart = ALLOCATIONS == null ? -1 : ALLOCATIONS.getCurrentThreadAllocatedBytes();
+        phaseStart = System.nanoTime();
+    }
+
+    /**
+     * Adds the time since the previous phase has ended to the given phase
+     *
+     * @param phase phase which has just ended
+     */
+    void endPhase(Phase phase) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - phaseStart;
+        phaseStart = now;
+    }
+
+    /**
+     * Adds the operations of an open list since its statistics have been reset and resets them, so an open list kept
+     * by a search mode between queries is only counted once
+     *
+     * @param openList open list used by the query
+     */
+    void drain(OpenList openList) {
+        expandedNodes += openList.getPollCount();
+        heapPushes += openList.getPushCount();
+        costUpdates += openList.getUpdateCount();
+        peakOpenListSize = Math.max(peakOpenListSize, openList.getPeakSize());
+        openList.resetStatistics();
+    }
+
+    /**
+     * Stops the measurement of the allocated bytes
+     *
+     * @param pathFound whether a path has been found
+     */
+    void end(boolean pathFound) {
+        this.pathFound = pathFound;
+        if (allocatedAtStart >= 0) {
+            long allocated = ALLOCATIONS.getCurrentThreadAllocatedBytes();
+            allocatedBytes = allocated >= 0 ? allocated - allocatedAtStart : -1;
+        }
+    }
+
+    void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    void setRejected(boolean rejected) {
+        this.rejected = rejected;
+    }
+
+    /**
+     * @return amount of nodes taken from the open list
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * @return amount of nodes reached with a new cost, either added to the open list or re-sorted in it
+     */
+    public long getGeneratedNodes() {
+        return heapPushes + costUpdates;
+    }
+
+    /**
+     * @return how often a node already in the open list has been reached with a different cost and re-sorted (a
+     * decrease key). Closed nodes are never opened again by these searches, so there are no re-openings to count.
+     */
+    public long getCostUpdates() {
+        return costUpdates;
+    }
+
+    public long getHeapPushes() {
+        return heapPushes;
+    }
+
+    public long getHeapPops() {
+        return expandedNodes;
+    }
+
+    /**
+     * @return highest amount of nodes in a single open list during the query
+     */
+    public int getPeakOpenListSize() {
+        return peakOpenListSize;
+    }
+
+    /**
+     * @param phase phase of the query
+     * @return wall time of the phase in nanoseconds
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return wall time of the whole query in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * @return bytes allocated by the searching thread during the query, -1 if the JVM can't measure them
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public boolean isPathFound() {
+        return pathFound;
+    }
+
+    /**
+     * @return whether the path has been taken from the path cache
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * @return whether the query has been answered by the connected components without a search
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(pathFound ? "Path found" : "No path found");
+        if (cached) {
+            sb.append(" (cached)");
+        } else if (rejected) {
+            sb.append(" (unreachable)");
+        }
+        sb.append(String.format("%nExpanded: %d%nGenerated: %d%nCost updates: %d%nHeap pushes/pops: %d/%d%n"
+                        + "Peak open list: %d%n", expandedNodes, getGeneratedNodes(), costUpdates, heapPushes,
+                expandedNodes, peakOpenListSize));
+        for (Phase phase : Phase.values()) {
+            String name = phase.name().charAt(0) + phase.name().substring(1).toLowerCase(Locale.ROOT);
+            sb.append(String.format("%s: %.3f ms%n", name, phaseNanos[phase.ordinal()] / 1e6));
+        }
+        sb.append(String.format("Total: %.3f ms%n", getTotalNanos() / 1e6));
+        sb.append(allocatedBytes < 0 ? "Allocated: n/a" : String.format("Allocated: %,d bytes", allocatedBytes));
+        return sb.toString();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) bean;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,457 @@
+package util;
+
+import model.AstarNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Compact record of the steps of a search, which can be replayed from any step.
+ * <p>
+ * Every event is packed into a single int holding its type in the two highest bits and the id of the node in the
+ * others, opening a node or lowering its cost is followed by a second int with the new f cost. A step consists of
+ * closing a node and the events caused by expanding it, the first step contains the opening of the start node and the
+ * last one the nodes of the path if one has been found.
+ * <p>
+ * To seek without replaying from the start, the status and f cost of all nodes are saved in a keyframe before a step
+ * whenever enough events have been added since the last one. The interval is at least the size of the grid, so
+ * keyframes never take much more memory than the events themselves.
+ *
+ * @author serturx
+ */
+public final class SearchTrace {
+
+    /**
+     * A node has been added to the open list
+     */
+    public static final int OPENED = 0;
+    /**
+     * A cheaper path to a node in the open list has been found
+     */
+    public static final int UPDATED = 1;
+    /**
+     * A node has been taken from the open list
+     */
+    public static final int CLOSED = 2;
+    /**
+     * A node is part of the found path
+     */
+    public static final int PATH = 3;
+
+    /**
+     * Status of a node which hasn't been reached (yet)
+     */
+    public static final int UNSEEN = -1;
+
+    private static final int MAGIC = 0x56415354;
+    private static final int FORMAT_VERSION = 1;
+    private static final int TYPE_SHIFT = 30;
+    private static final int ID_MASK = (1 << TYPE_SHIFT) - 1;
+    private static final int MIN_KEYFRAME_INTERVAL = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private final int keyframeInterval;
+    private int[] events;
+    private int eventCount;
+    /**
+     * Index of the first event of each step
+     */
+    private int[] stepStarts;
+    private int stepCount;
+    private final List<Keyframe> keyframes;
+    /**
+     * Status and f cost of all nodes after the last event
+     */
+    private final byte[] statuses;
+    private final int[] costs;
+    private int lastKeyframeEvent;
+    private boolean pathFound;
+
+    /**
+     * SearchTrace Constructor
+     *
+     * @param width  Width of the grid
+     * @param height Height of the grid
+     */
+    public SearchTrace(int width, int height) {
+        if ((long) width * height > ID_MASK + 1L) {
+            throw new IllegalArgumentException("Grid is too big to be traced");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.keyframeInterval = Math.max(MIN_KEYFRAME_INTERVAL, width * height);
+        this.events = new int[1024];
+        this.stepStarts = new int[256];
+        this.keyframes = new ArrayList<>();
+        this.statuses = new byte[width * height];
+        this.costs = new int[width * height];
+        clear();
+    }
+
+    /**
+     * Removes all events, so the trace can record a new search
+     */
+    public void clear() {
+        eventCount = 0;
+        stepCount = 1;
+        stepStarts[0] = 0;
+        keyframes.clear();
+        lastKeyframeEvent = 0;
+        pathFound = false;
+        Arrays.fill(statuses, (byte) UNSEEN);
+        Arrays.fill(costs, Integer.MAX_VALUE);
+    }
+
+    void opened(int id, int fCost) {
+        add(OPENED, id, fCost);
+    }
+
+    void updated(int id, int fCost) {
+        add(UPDATED, id, fCost);
+    }
+
+    void closed(int id) {
+        beginStep();
+        add(CLOSED, id, 0);
+    }
+
+    /**
+     * Records the nodes of the found path as the last step
+     *
+     * @param path ids of the nodes of the path
+     */
+    void path(int[] path) {
+        beginStep();
+        pathFound = true;
+        for (int id : path) {
+            add(PATH, id, 0);
+        }
+    }
+
+    private void beginStep() {
+        // the first step ends with the first closed node
+        if (eventCount == 0 && stepCount == 1) {
+            return;
+        }
+
+        if (eventCount - lastKeyframeEvent >= keyframeInterval) {
+            keyframes.add(new Keyframe(stepCount, statuses.clone(), costs.clone()));
+            lastKeyframeEvent = eventCount;
+        }
+        if (stepCount == stepStarts.length) {
+            stepStarts = Arrays.copyOf(stepStarts, stepCount * 2);
+        }
+        stepStarts[stepCount++] = eventCount;
+    }
+
+    private void add(int type, int id, int fCost) {
+        boolean hasCost = type == OPENED || type == UPDATED;
+        if (eventCount + 2 > events.length) {
+            events = Arrays.copyOf(events, events.length * 2);
+        }
+
+        events[eventCount++] = type << TYPE_SHIFT | id;
+        if (hasCost) {
+            events[eventCount++] = fCost;
+            costs[id] = fCost;
+        }
+        statuses[id] = (byte) (type == UPDATED ? OPENED : type);
+    }
+
+    /**
+     * Saves the events, the file is replaced if it exists
+     *
+     * @param file file to save the trace to
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path file) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(width);
+                out.writeInt(height);
+                out.writeInt(eventCount);
+                for (int i = 0; i < eventCount; i++) {
+                    out.writeInt(events[i]);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads a saved trace, the steps and keyframes are restored by recording the events again
+     *
+     * @param file file the trace has been saved to
+     * @return the trace
+     * @throws IOException if the file can't be read or isn't a trace file
+     */
+    public static SearchTrace read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException(String.format("%s is not a trace file of version %d", file, FORMAT_VERSION));
+            }
+            int width = in.readInt();
+            int height = in.readInt();
+            int count = in.readInt();
+            if (width <= 0 || height <= 0 || count < 0) {
+                throw new IOException(String.format("%s has an invalid header", file));
+            }
+
+            SearchTrace trace = new SearchTrace(width, height);
+            int read = 0;
+            boolean inPath = false;
+            while (read < count) {
+                int event = in.readInt();
+                int type = event >>> TYPE_SHIFT;
+                int id = event & ID_MASK;
+                read++;
+                if (id >= width * height) {
+                    throw new IOException(String.format("%s contains an invalid node %d", file, id));
+                }
+
+                if (type == OPENED || type == UPDATED) {
+                    trace.add(type, id, in.readInt());
+                    read++;
+                } else if (type == CLOSED) {
+                    trace.closed(id);
+                } else {
+                    if (!inPath) {
+                        trace.beginStep();
+                        trace.pathFound = true;
+                        inPath = true;
+                    }
+                    trace.add(PATH, id, 0);
+                }
+            }
+            return trace;
+        } catch (EOFException e) {
+            throw new IOException(String.format("%s is truncated", file), e);
+        }
+    }
+
+    /**
+     * Returns a listener recording the events of any search mode into this trace, e.g. to replay a search after it has
+     * run at full speed. The trace has to be cleared before each search.
+     *
+     * @param fCost f cost of a node at the time it is opened, e.g. read from the node store of the search
+     * @return listener adding the events of a search to the trace
+     */
+    public SearchListener recorder(IntUnaryOperator fCost) {
+        return new SearchListener() {
+            @Override
+            public void onNodeOpened(int id) {
+                opened(id, fCost.applyAsInt(id));
+            }
+
+            @Override
+            public void onNodeClosed(int id) {
+                closed(id);
+            }
+
+            @Override
+            public void onPathFound(List<AstarNode> path) {
+                path(path.stream().mapToInt(AstarNode::getId).toArray());
+            }
+        };
+    }
+
+    /**
+     * @return a cursor positioned before the first step
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return amount of steps, 0 if nothing has been recorded
+     */
+    public int getStepCount() {
+        return eventCount == 0 ? 0 : stepCount;
+    }
+
+    /**
+     * @return whether the last step contains a found path
+     */
+    public boolean isPathFound() {
+        return pathFound;
+    }
+
+    /**
+     * @return amount of recorded ints, i.e. events and their costs
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return approximate amount of memory taken by the events and keyframes in bytes
+     */
+    public long getMemoryUsage() {
+        return 4L * events.length + 4L * stepStarts.length + 5L * statuses.length * (keyframes.size() + 1);
+    }
+
+    /**
+     * Receives replayed events
+     */
+    @FunctionalInterface
+    public interface EventConsumer {
+
+        /**
+         * @param type  type of the event, e.g. {@link #CLOSED}
+         * @param id    id of the node
+         * @param fCost f cost of the node after the event, Integer.MAX_VALUE if it has never been opened
+         */
+        void accept(int type, int id, int fCost);
+    }
+
+    /**
+     * Status and f cost of all nodes before a step
+     */
+    private static final class Keyframe {
+
+        private final int step;
+        private final byte[] statuses;
+        private final int[] costs;
+
+        private Keyframe(int step, byte[] statuses, int[] costs) {
+            this.step = step;
+            this.statuses = statuses;
+            this.costs = costs;
+        }
+    }
+
+    /**
+     * Replays the trace: the status and f cost of every node after any step of the search
+     */
+    public final class Cursor {
+
+        private final byte[] statuses;
+        private final int[] costs;
+        /**
+         * Amount of steps applied
+         */
+        private int position;
+
+        private Cursor() {
+            this.statuses = new byte[width * height];
+            this.costs = new int[width * height];
+            reset();
+        }
+
+        private void reset() {
+            Arrays.fill(statuses, (byte) UNSEEN);
+            Arrays.fill(costs, Integer.MAX_VALUE);
+            position = 0;
+        }
+
+        /**
+         * Moves to the state after the given amount of steps, starting at the closest keyframe before it
+         *
+         * @param steps amount of steps to apply, between 0 and the step count
+         */
+        public void seek(int steps) {
+            if (steps < 0 || steps > getStepCount()) {
+                throw new IndexOutOfBoundsException(String.format("Step %d of %d", steps, getStepCount()));
+            }
+
+            Keyframe keyframe = null;
+            for (int i = keyframes.size() - 1; i >= 0 && keyframe == null; i--) {
+                if (keyframes.get(i).step <= steps) {
+                    keyframe = keyframes.get(i);
+                }
+            }
+
+            if (steps < position || (keyframe != null && keyframe.step > position)) {
+                if (keyframe == null) {
+                    reset();
+                } else {
+                    System.arraycopy(keyframe.statuses, 0, statuses, 0, statuses.length);
+                    System.arraycopy(keyframe.costs, 0, costs, 0, costs.length);
+                    position = keyframe.step;
+                }
+            }
+            advance(steps - position, null);
+        }
+
+        /**
+         * Applies the next steps
+         *
+         * @param steps    maximum amount of steps to apply
+         * @param consumer receives the applied events, may be null
+         * @return amount of steps applied, less than requested at the end of the trace
+         */
+        public int advance(int steps, EventConsumer consumer) {
+            int target = Math.min(position + steps, getStepCount());
+            int end = target == stepCount ? eventCount : stepStarts[target];
+            int applied = target - position;
+
+            for (int i = position == stepCount ? eventCount : stepStarts[position]; i < end; i++) {
+                int type = events[i] >>> TYPE_SHIFT;
+                int id = events[i] & ID_MASK;
+                if (type == OPENED || type == UPDATED) {
+                    costs[id] = events[++i];
+                }
+                statuses[id] = (byte) (type == UPDATED ? OPENED : type);
+                if (consumer != null) {
+                    consumer.accept(type, id, costs[id]);
+                }
+            }
+
+            position = target;
+            return applied;
+        }
+
+        /**
+         * @return amount of steps applied
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        public boolean isAtEnd() {
+            return position == getStepCount();
+        }
+
+        /**
+         * @param id id of the node
+         * @return {@link #OPENED}, {@link #CLOSED}, {@link #PATH} or {@link #UNSEEN}
+         */
+        public int getStatus(int id) {
+            return statuses[id];
+        }
+
+        /**
+         * @param id id of the node
+         * @return f cost of the node, Integer.MAX_VALUE if it hasn't been opened
+         */
+        public int getFCost(int id) {
+            return costs[id];
+        }
+    }
+}